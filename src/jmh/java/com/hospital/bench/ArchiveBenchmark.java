@@ -0,0 +1,84 @@
+package com.hospital.bench;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.core.Hospital;
+import com.hospital.core.Patient;
+
+/**
+ * Yearly visit counts over every patient, with the history kept as appointment objects
+ * and after moving it into an appointment archive. The heap retained by the whole
+ * hospital per appointment, before and after archiving, is printed to the fork's output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArchiveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Histories {
+        @Param({ "50" })
+        public int doctors;
+
+        @Param({ "2000" })
+        public int patients;
+
+        @Param({ "4000" })
+        public int appointmentsPerDoctor;
+
+        Patient[] live;
+        Patient[] archived;
+        int year;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            long empty = HeapMeter.usedHeap();
+            Hospital archivedHospital = HospitalDataGenerator.generate(doctors, patients, appointmentsPerDoctor, 0.7, 42);
+            int appointments = archivedHospital.getAllDoctors().stream().mapToInt(d -> d.getAppointments().size()).sum();
+            long liveBytes = HeapMeter.usedHeap() - empty;
+            archivedHospital.archiveAppointmentsBefore(LocalDate.now());
+            long archivedBytes = HeapMeter.usedHeap() - empty;
+            System.out.printf("%nRetained bytes per appointment, whole hospital: objects %.1f, archived %.1f%n",
+                    (double) liveBytes / appointments, (double) archivedBytes / appointments);
+
+            Hospital liveHospital = HospitalDataGenerator.generate(doctors, patients, appointmentsPerDoctor, 0.7, 42);
+            live = liveHospital.getAllPatients().toArray(new Patient[0]);
+            archived = archivedHospital.getAllPatients().toArray(new Patient[0]);
+            year = LocalDate.now().minusYears(1).getYear();
+        }
+    }
+
+    @Benchmark
+    public long countAppointmentsInYear(Histories histories) {
+        long total = 0;
+        for (Patient patient : histories.live) {
+            total += patient.countAppointmentsInYear(histories.year);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long countArchivedAppointmentsInYear(Histories histories) {
+        long total = 0;
+        for (Patient patient : histories.archived) {
+            total += patient.countAppointmentsInYear(histories.year);
+        }
+        return total;
+    }
+}
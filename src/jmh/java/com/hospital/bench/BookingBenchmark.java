@@ -0,0 +1,111 @@
+package com.hospital.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.BookingRequest;
+import com.hospital.core.BookingResult;
+import com.hospital.core.Doctor;
+import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.Patient;
+
+/**
+ * Throughput of {@code createNearestAvailableAppointment}. The dataset is regenerated
+ * for every iteration so bookings do not keep pushing the search further out; run with
+ * {@code -t N} to measure how booking desks on different doctors scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BookingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FreshHospital extends HospitalState {
+        @Setup(Level.Iteration)
+        public void regenerate() {
+            generate();
+        }
+    }
+
+    private static final int REFERRALS = 1000;
+
+    @Benchmark
+    public Appointment createNearestAvailableAppointment(FreshHospital state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Doctor doctor = state.doctorArray[random.nextInt(state.doctorArray.length)];
+        Patient patient = state.patientArray[random.nextInt(state.patientArray.length)];
+        return state.hospital.createNearestAvailableAppointment(patient, doctor);
+    }
+
+    /**
+     * Earliest visit with any doctor of a random specialty. Doctors that are booked out
+     * beyond the inline window are searched on the common fork-join pool.
+     */
+    @Benchmark
+    public Appointment createEarliestAppointment(FreshHospital state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        MedicalSpecialty[] specialties = MedicalSpecialty.values();
+        Patient patient = state.patientArray[random.nextInt(state.patientArray.length)];
+        return state.hospital.createEarliestAppointment(patient, specialties[random.nextInt(specialties.length)]);
+    }
+
+    /**
+     * The same search with the common pool disabled, so the parallel phase runs on the
+     * calling thread; compare with the above on a multi-core machine.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=0")
+    public Appointment createEarliestAppointmentSequentially(FreshHospital state) {
+        return createEarliestAppointment(state);
+    }
+
+    /**
+     * A referral list of {@value #REFERRALS} requests booked in one batch.
+     */
+    @Benchmark
+    @OperationsPerInvocation(REFERRALS)
+    public List<BookingResult> batchReferrals(FreshHospital state) {
+        return state.hospital.createNearestAvailableAppointments(referrals(state));
+    }
+
+    /**
+     * The same kind of referral list booked request by request.
+     */
+    @Benchmark
+    @OperationsPerInvocation(REFERRALS)
+    public Appointment oneByOneReferrals(FreshHospital state) {
+        Appointment last = null;
+        for (BookingRequest request : referrals(state)) {
+            last = state.hospital.createNearestAvailableAppointment(request.getPatient(), request.getDoctor());
+        }
+        return last;
+    }
+
+    private static List<BookingRequest> referrals(FreshHospital state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<BookingRequest> requests = new ArrayList<>(REFERRALS);
+        for (int i = 0; i < REFERRALS; i++) {
+            requests.add(new BookingRequest(state.patientArray[random.nextInt(state.patientArray.length)],
+                    state.doctorArray[random.nextInt(state.doctorArray.length)]));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,79 @@
+package com.hospital.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hospital.core.Hospital;
+import com.hospital.io.json.AppointmentComparator;
+import com.hospital.io.json.HospitalFileIO;
+import com.hospital.io.json.HospitalSerializer;
+
+/**
+ * Per-export latency of small periodic snapshots: a mapper built for every call, as
+ * {@code HospitalFileIO} used to do, against the cached per-comparator writers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExportBenchmark {
+    @Param({ "5" })
+    private int doctors;
+
+    @Param({ "20" })
+    private int appointmentsPerDoctor;
+
+    @Param({ "BY_DATE" })
+    private AppointmentComparator order;
+
+    private final HospitalFileIO io = new HospitalFileIO();
+    private Hospital hospital;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        hospital = HospitalDataGenerator.generate(doctors, doctors * 2, appointmentsPerDoctor, 0.7, 42);
+        file = Files.createTempFile("export-benchmark-", ".json");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void freshMapperPerExport() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.writer()
+                .withAttribute(HospitalSerializer.COMPARATOR_ATTRIBUTE, order.getComparator())
+                .writeValue(new File(file.toString()), hospital);
+    }
+
+    @Benchmark
+    public void cachedWriter() throws IOException {
+        io.saveToFile(hospital, file.toString(), order.getComparator());
+    }
+}
@@ -0,0 +1,98 @@
+package com.hospital.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.core.Hospital;
+import com.hospital.io.json.AppointmentComparator;
+import com.hospital.io.json.HospitalFileIO;
+
+/**
+ * Full save and load of a generated dataset through {@code com.hospital.io.json}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class FileIOBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SnapshotFiles {
+        Path json;
+        Path binary;
+        Path output;
+
+        @Setup(Level.Trial)
+        public void write(HospitalState state) throws IOException {
+            json = Files.createTempFile("hospital-benchmark-", ".json");
+            output = Files.createTempFile("hospital-benchmark-out-", ".json");
+            binary = Files.createTempFile("hospital-benchmark-", ".bin");
+            new HospitalFileIO().saveToFile(state.hospital, json.toString());
+            new HospitalFileIO().saveBinary(state.hospital, binary.toString());
+            System.out.printf("%nJSON snapshot: %d bytes, binary snapshot: %d bytes%n",
+                    Files.size(json), Files.size(binary));
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(json);
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private final HospitalFileIO io = new HospitalFileIO();
+
+    @Benchmark
+    public Hospital loadJson(SnapshotFiles files) throws IOException {
+        return io.loadFromFile(files.json.toString());
+    }
+
+    @Benchmark
+    public void saveJson(HospitalState state, SnapshotFiles files) throws IOException {
+        io.saveToFile(state.hospital, files.output.toString());
+    }
+
+    @Benchmark
+    public void saveJsonSortedByDate(HospitalState state, SnapshotFiles files) throws IOException {
+        io.saveToFile(state.hospital, files.output.toString(), AppointmentComparator.BY_DATE.getComparator());
+    }
+
+    @Benchmark
+    public Hospital loadBinary(SnapshotFiles files) throws IOException {
+        return io.loadBinary(files.binary.toString());
+    }
+
+    @Benchmark
+    public Hospital loadMapped(SnapshotFiles files) throws IOException {
+        return io.loadMapped(files.binary.toString());
+    }
+
+    @Benchmark
+    public int loadMappedAndReadOneDoctor(HospitalState state, SnapshotFiles files) throws IOException {
+        Hospital hospital = io.loadMapped(files.binary.toString());
+        return hospital.getDoctor(state.doctorArray[0].getId()).orElseThrow().getAppointments().size();
+    }
+
+    @Benchmark
+    public void saveBinary(HospitalState state, SnapshotFiles files) throws IOException {
+        io.saveBinary(state.hospital, files.output.toString());
+    }
+}
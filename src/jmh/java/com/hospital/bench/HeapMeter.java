@@ -0,0 +1,19 @@
+package com.hospital.bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Rough retained-heap measurement for footprint comparisons: the used heap after a few
+ * full collections. Only differences between two readings are meaningful.
+ */
+final class HeapMeter {
+    private HeapMeter() {
+    }
+
+    static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
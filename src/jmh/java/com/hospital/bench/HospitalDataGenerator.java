@@ -0,0 +1,87 @@
+package com.hospital.bench;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.Doctor;
+import com.hospital.core.Hospital;
+import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.Patient;
+
+/**
+ * Deterministic synthetic hospitals for benchmarks. Every doctor gets
+ * {@code appointmentsPerDoctor} thirty-minute visits on an hourly grid, each grid slot
+ * taken with probability {@code fillRate}. Roughly four fifths of them lie in the past,
+ * the rest fill the days right after today that the booking search has to skip.
+ */
+public final class HospitalDataGenerator {
+    private static final String[] FIRST_NAMES = { "Іван", "Марія", "Петро", "Олена", "Андрій", "Наталія",
+            "Василь", "Оксана", "Дмитро", "Ірина" };
+    private static final String[] LAST_NAMES = { "Іваненко", "Коваленко", "Петренко", "Шевченко", "Бондаренко",
+            "Ткаченко", "Кравченко", "Олійник", "Мельник", "Гринчук" };
+    private static final double HISTORY_SHARE = 0.8;
+
+    private HospitalDataGenerator() {
+    }
+
+    public static Hospital generate(int doctors, int patients, int appointmentsPerDoctor, double fillRate,
+            long seed) {
+        if (fillRate <= 0 || fillRate > 1)
+            throw new IllegalArgumentException("Fill rate must be in (0, 1]");
+
+        Random random = new Random(seed);
+        Hospital hospital = new Hospital();
+        MedicalSpecialty[] specialties = MedicalSpecialty.values();
+
+        List<Patient> patientList = new ArrayList<>(patients);
+        for (int i = 0; i < patients; i++) {
+            patientList.add(hospital.createPatient(pick(FIRST_NAMES, random), pick(LAST_NAMES, random),
+                    LocalDate.of(1940 + random.nextInt(80), 1 + random.nextInt(12), 1 + random.nextInt(28))));
+        }
+
+        for (int i = 0; i < doctors; i++) {
+            LocalTime workStart = LocalTime.of(8 + random.nextInt(2), 0);
+            LocalTime workEnd = LocalTime.of(16 + random.nextInt(3), 0);
+            Doctor doctor = hospital.createDoctor(pick(FIRST_NAMES, random), pick(LAST_NAMES, random),
+                    specialties[i % specialties.length], workStart, workEnd);
+            fill(doctor, patientList, appointmentsPerDoctor, fillRate, random);
+        }
+        return hospital;
+    }
+
+    private static void fill(Doctor doctor, List<Patient> patients, int count, double fillRate, Random random) {
+        if (patients.isEmpty() || count == 0) {
+            return;
+        }
+        int slotsPerDay = (doctor.getWorkEnd().getHour() - doctor.getWorkStart().getHour());
+        long historyDays = (long) Math.ceil(count * HISTORY_SHARE / (slotsPerDay * fillRate));
+        LocalDate date = LocalDate.now().minusDays(historyDays);
+
+        int placed = 0;
+        while (placed < count) {
+            for (int slot = 0; slot < slotsPerDay && placed < count; slot++) {
+                if (random.nextDouble() >= fillRate) {
+                    continue;
+                }
+                LocalTime start = doctor.getWorkStart().plusHours(slot);
+                Patient patient = patients.get(random.nextInt(patients.size()));
+                Appointment appointment = new Appointment(doctor, patient, date, start, start.plusMinutes(30),
+                        date.isBefore(LocalDate.now()) ? Appointment.Status.CLOSED : Appointment.Status.ACTIVE);
+                if (patient.canAcceptAppointment(appointment)) {
+                    doctor.addAppointment(appointment);
+                    patient.addAppointment(appointment);
+                    placed++;
+                }
+            }
+            date = date.plusDays(1);
+        }
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,46 @@
+package com.hospital.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.hospital.core.Doctor;
+import com.hospital.core.Hospital;
+import com.hospital.core.Patient;
+
+/**
+ * Shared dataset parameters; override them from the command line, e.g.
+ * {@code -p doctors=500 -p appointmentsPerDoctor=20000}.
+ */
+@State(Scope.Benchmark)
+public class HospitalState {
+    @Param({ "50" })
+    public int doctors;
+
+    @Param({ "500" })
+    public int patients;
+
+    @Param({ "1000" })
+    public int appointmentsPerDoctor;
+
+    @Param({ "0.7" })
+    public double fillRate;
+
+    public Hospital hospital;
+    public Doctor[] doctorArray;
+    public Patient[] patientArray;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        hospital = HospitalDataGenerator.generate(doctors, patients, appointmentsPerDoctor, fillRate, 42);
+        List<Doctor> doctorList = new ArrayList<>(hospital.getAllDoctors());
+        List<Patient> patientList = new ArrayList<>(hospital.getAllPatients());
+        doctorArray = doctorList.toArray(new Doctor[0]);
+        patientArray = patientList.toArray(new Patient[0]);
+    }
+}
@@ -0,0 +1,61 @@
+package com.hospital.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.core.Hospital;
+import com.hospital.core.Patient;
+import com.hospital.io.binary.WriteAheadJournal;
+
+/**
+ * Cost of a journaled mutation. Run with {@code -t N} to see group commit spread one
+ * {@code fsync} over concurrent callers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class JournaledHospital {
+        Hospital hospital;
+        Path file;
+        WriteAheadJournal journal;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            hospital = new Hospital();
+            file = Files.createTempFile("hospital-benchmark-", ".wal");
+            journal = WriteAheadJournal.open(file);
+            hospital.setMutationListener(journal);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public Patient createPatient(JournaledHospital state) {
+        return state.hospital.createPatient("Олена", "Гринчук", null);
+    }
+}
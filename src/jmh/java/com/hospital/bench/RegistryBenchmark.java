@@ -0,0 +1,111 @@
+package com.hospital.bench;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hospital.core.Hospital;
+import com.hospital.core.Patient;
+
+/**
+ * Patient lookup by id and a walk over all patients in the hospital registry against a
+ * {@code ConcurrentHashMap<Long, Patient>} holding the same patients. The walks report
+ * the time per whole registry. The heap each registry retains per patient is
+ * measured once per trial and printed to the fork's output, e.g.
+ * {@code -p registrySize=1000000 -jvmArgsAppend -Xmx4g}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegistryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Registries {
+        @Param({ "200000" })
+        public int registrySize;
+
+        Hospital hospital;
+        Map<Long, Patient> map;
+        long[] ids;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            Patient[] patients = new Patient[registrySize];
+            for (int i = 0; i < registrySize; i++) {
+                patients[i] = new Patient((long) i + 1, "Пацієнт", null, LocalDate.of(1990, 1, 1));
+            }
+
+            long before = HeapMeter.usedHeap();
+            hospital = new Hospital();
+            for (Patient patient : patients) {
+                hospital.addPatient(patient);
+            }
+            long registry = HeapMeter.usedHeap() - before;
+
+            before = HeapMeter.usedHeap();
+            map = new ConcurrentHashMap<>();
+            for (Patient patient : patients) {
+                map.put(patient.getId(), patient);
+            }
+            long concurrentHashMap = HeapMeter.usedHeap() - before;
+
+            System.out.printf("%nRetained bytes per patient: hospital registry %.1f, ConcurrentHashMap %.1f%n",
+                    (double) registry / registrySize, (double) concurrentHashMap / registrySize);
+
+            ids = new long[4096];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = 1 + (long) (Math.random() * registrySize);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Patient hospitalRegistry(Registries registries, Cursor cursor) {
+        long id = registries.ids[cursor.next++ & (registries.ids.length - 1)];
+        return registries.hospital.getPatient(id).orElse(null);
+    }
+
+    @Benchmark
+    public Patient concurrentHashMap(Registries registries, Cursor cursor) {
+        long id = registries.ids[cursor.next++ & (registries.ids.length - 1)];
+        return registries.map.get(id);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void hospitalRegistryWalk(Registries registries, Blackhole blackhole) {
+        for (Patient patient : registries.hospital.getAllPatients()) {
+            blackhole.consume(patient);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void concurrentHashMapWalk(Registries registries, Blackhole blackhole) {
+        for (Patient patient : registries.map.values()) {
+            blackhole.consume(patient);
+        }
+    }
+}
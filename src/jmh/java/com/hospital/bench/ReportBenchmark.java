@@ -0,0 +1,81 @@
+package com.hospital.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.Doctor;
+import com.hospital.core.ReportRenderer;
+
+/**
+ * Report lines of every appointment, rendered by a {@link ReportRenderer} against
+ * {@code toString()} encoded to UTF-8. Run with {@code -prof gc}: the renderer's
+ * {@code gc.alloc.rate.norm} should stay near zero however many lines are written.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lines {
+        Doctor[] doctors;
+        Appointment[] appointments;
+
+        @Setup(Level.Trial)
+        public void collect(HospitalState state) {
+            List<Appointment> all = new ArrayList<>();
+            for (Doctor doctor : state.doctorArray) {
+                all.addAll(doctor.getAppointments());
+            }
+            doctors = state.doctorArray;
+            appointments = all.subList(0, Math.min(all.size(), 10_000)).toArray(new Appointment[0]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Output {
+        final ReportRenderer renderer = new ReportRenderer(OutputStream.nullOutputStream());
+        final OutputStream out = OutputStream.nullOutputStream();
+    }
+
+    @Benchmark
+    public void renderer(Lines lines, Output output) throws IOException {
+        ReportRenderer renderer = output.renderer;
+        for (Doctor doctor : lines.doctors) {
+            renderer.doctor(doctor).newLine();
+        }
+        for (Appointment appointment : lines.appointments) {
+            renderer.ascii("    ").appointment(appointment).newLine();
+        }
+        renderer.flush();
+    }
+
+    @Benchmark
+    public void toStringLines(Lines lines, Output output) throws IOException {
+        for (Doctor doctor : lines.doctors) {
+            output.out.write((doctor + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        for (Appointment appointment : lines.appointments) {
+            output.out.write(("    " + appointment + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
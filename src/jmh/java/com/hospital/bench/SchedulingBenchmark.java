@@ -0,0 +1,120 @@
+package com.hospital.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.Doctor;
+import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.ReportFilter;
+import com.hospital.io.json.AppointmentComparator;
+
+/**
+ * Read-only hot paths of {@code com.hospital.core} over a generated dataset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SchedulingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Candidates {
+        private static final int COUNT = 1024;
+
+        Appointment[] candidates = new Appointment[COUNT];
+
+        @Setup(Level.Trial)
+        public void prepare(HospitalState state) {
+            Random random = new Random(7);
+            for (int i = 0; i < COUNT; i++) {
+                Doctor doctor = state.doctorArray[random.nextInt(state.doctorArray.length)];
+                LocalDate date = LocalDate.now().plusDays(random.nextInt(60) - 30);
+                LocalTime start = doctor.getWorkStart().plusMinutes(30L * random.nextInt(14));
+                candidates[i] = new Appointment(doctor, null, date, start, start.plusMinutes(30),
+                        Appointment.Status.ACTIVE);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean canAcceptAppointment(Candidates candidates) {
+        Appointment candidate = candidates.candidates[ThreadLocalRandom.current().nextInt(Candidates.COUNT)];
+        return candidate.getDoctor().canAcceptAppointment(candidate);
+    }
+
+    @Benchmark
+    public List<Doctor> findDoctorsBySpecialty(HospitalState state) {
+        MedicalSpecialty[] specialties = MedicalSpecialty.values();
+        return state.hospital.findDoctorsBySpecialty(
+                specialties[ThreadLocalRandom.current().nextInt(specialties.length)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String generateFullReport(HospitalState state) {
+        return state.hospital.generateFullReport();
+    }
+
+    /**
+     * The same report streamed to a discarding writer; compare allocation with
+     * {@code -prof gc}.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void writeReport(HospitalState state) throws IOException {
+        state.hospital.writeReport(Writer.nullWriter(), ReportFilter.ALL);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void renderReport(HospitalState state) throws IOException {
+        state.hospital.renderReport(OutputStream.nullOutputStream(), ReportFilter.ALL);
+    }
+
+    /**
+     * Walks the hospital's index for a predefined order; compare with
+     * {@link #sortAllAppointments}, which is what every sorted export used to do.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void walkSortedAppointments(HospitalState state, Blackhole blackhole) {
+        for (Appointment appointment : state.hospital
+                .getAllAppointments(AppointmentComparator.BY_PATIENT_ID.getComparator())) {
+            blackhole.consume(appointment);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Appointment> sortAllAppointments(HospitalState state) {
+        List<Appointment> all = new ArrayList<>();
+        for (Doctor doctor : state.hospital.getAllDoctors()) {
+            all.addAll(doctor.getAppointments());
+        }
+        all.sort(AppointmentComparator.BY_PATIENT_ID.getComparator());
+        return all;
+    }
+}
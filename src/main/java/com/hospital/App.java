@@ -1,6 +1,8 @@
 package com.hospital;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.NoSuchElementException;
@@ -10,7 +12,10 @@ import com.hospital.core.Appointment;
 import com.hospital.core.Doctor;
 import com.hospital.core.Hospital;
 import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.NoAvailableSlotException;
 import com.hospital.core.Patient;
+import com.hospital.core.ReportFilter;
+import com.hospital.core.ReportRenderer;
 import com.hospital.io.json.AppointmentComparator;
 import com.hospital.io.json.HospitalFileIO;
 
@@ -18,6 +23,8 @@ public class App {
     private static final Scanner scanner = new Scanner(System.in);
     private static final HospitalFileIO jsonHandler = new HospitalFileIO();
     private static Hospital hospital = new Hospital();
+    // The renderer writes UTF-8, so it can only bypass System.out's encoder when the two agree.
+    private static final boolean UTF8_CONSOLE = consoleCharset().equals(StandardCharsets.UTF_8);
     private static final String OPTION_LIST = """
                 <-- Функціональності -->
                 1. Пошук лікарів за спеціальністю
@@ -105,8 +112,34 @@ public class App {
         }
     }
 
+    /**
+     * Charset System.out encodes with: {@code stdout.encoding} from Java 18 on,
+     * {@code sun.stdout.encoding} before that when attached to a console, otherwise the
+     * default charset.
+     */
+    private static Charset consoleCharset() {
+        String name = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        try {
+            return name == null ? Charset.defaultCharset() : Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
     private static void handleListPatients() {
-        hospital.getAllPatients().forEach(System.out::println);
+        if (!UTF8_CONSOLE) {
+            hospital.getAllPatients().forEach(System.out::println);
+            return;
+        }
+        try {
+            ReportRenderer renderer = new ReportRenderer(System.out);
+            for (Patient patient : hospital.getAllPatients()) {
+                renderer.patient(patient).newLine();
+            }
+            renderer.flush();
+        } catch (IOException e) {
+            printError();
+        }
     }
 
     private static void handleUpdatePatient() {
@@ -167,7 +200,19 @@ public class App {
     }
 
     private static void handleListDoctors() {
-        hospital.getAllDoctors().forEach(System.out::println);
+        if (!UTF8_CONSOLE) {
+            hospital.getAllDoctors().forEach(System.out::println);
+            return;
+        }
+        try {
+            ReportRenderer renderer = new ReportRenderer(System.out);
+            for (Doctor doctor : hospital.getAllDoctors()) {
+                renderer.doctor(doctor).newLine();
+            }
+            renderer.flush();
+        } catch (IOException e) {
+            printError();
+        }
     }
 
     private static void handleUpdateDoctor() {
@@ -237,7 +282,11 @@ public class App {
         while (true) {
             try {
                 hospital.getAllDoctors().forEach(System.out::println);
-                String input = getConsoleInput("Оберіть лікаря: ");
+                String input = getConsoleInput("Оберіть лікаря (або Enter для найближчого запису за спеціальністю): ");
+                if (input.isBlank()) {
+                    doctor = null;
+                    break;
+                }
                 Long doctorId = Long.parseLong(input);
                 doctor = hospital.getDoctor(doctorId).orElseThrow();
                 break;
@@ -246,12 +295,41 @@ public class App {
             }
         }
 
-        var visit = hospital.createNearestAvailableAppointment(patient, doctor);
+        Appointment visit;
+        if (doctor == null) {
+            displayMedicalSpecialitiesMenu();
+            MedicalSpecialty specialty = MedicalSpecialty.values()[getValidSpecialityInput() - 1];
+            try {
+                visit = hospital.createEarliestAppointment(patient, specialty);
+            } catch (NoSuchElementException e) {
+                System.out.println("Не знайдено лікарів із заданою спеціальністю");
+                return;
+            } catch (NoAvailableSlotException e) {
+                System.out.println("Немає вільного часу для запису");
+                return;
+            }
+        } else {
+            try {
+                visit = hospital.createNearestAvailableAppointment(patient, doctor);
+            } catch (NoAvailableSlotException e) {
+                System.out.println("Немає вільного часу для запису");
+                return;
+            }
+        }
         System.out.println("Запис до лікаря успішно створено. Деталі запису:\n" + visit.toString());
     }
 
     public static void handleReport() {
-        System.out.println(hospital.generateFullReport());
+        try {
+            if (UTF8_CONSOLE) {
+                hospital.renderReport(System.out, ReportFilter.ALL);
+            } else {
+                hospital.writeReport(System.out, ReportFilter.ALL);
+            }
+            System.out.println();
+        } catch (IOException e) {
+            printError();
+        }
     }
 
     public static void handleFileRead() {
@@ -14,6 +14,7 @@ public class Appointment {
     private Status status;
     private LocalTime start;
     private LocalTime end;
+    private volatile boolean booked;
 
     public enum Status {
         ACTIVE,
@@ -39,6 +40,7 @@ public class Appointment {
     }
 
     public void setDoctor(Doctor doctor) {
+        checkNotBooked();
         this.doctor = doctor;
     }
 
@@ -47,6 +49,7 @@ public class Appointment {
     }
 
     public void setPatient(Patient patient) {
+        checkNotBooked();
         this.patient = patient;
     }
 
@@ -55,6 +58,7 @@ public class Appointment {
     }
 
     public void setDate(LocalDate date) {
+        checkNotBooked();
         this.date = date;
     }
 
@@ -63,6 +67,7 @@ public class Appointment {
     }
 
     public void setStart(LocalTime start) {
+        checkNotBooked();
         this.start = start;
     }
 
@@ -71,6 +76,7 @@ public class Appointment {
     }
 
     public void setEnd(LocalTime end) {
+        checkNotBooked();
         this.end = end;
     }
 
@@ -80,6 +86,35 @@ public class Appointment {
 
     public void setStatus(Status status) {
         this.status = status;
+        if (booked) {
+            statusChanged();
+        }
+    }
+
+    /**
+     * Reports a status change of a booked appointment to the hospital of the doctor,
+     * if any.
+     */
+    void statusChanged() {
+        Doctor doctor = getDoctor();
+        Hospital hospital = doctor == null ? null : doctor.hospital;
+        if (hospital != null) {
+            hospital.onStatusChanged(this);
+        }
+    }
+
+    /**
+     * Called once the appointment is in a schedule, whose indexes are keyed by its date,
+     * times, doctor and patient; from then on only its status may change.
+     */
+    void markBooked() {
+        booked = true;
+    }
+
+    private void checkNotBooked() {
+        if (booked) {
+            throw new IllegalStateException("Booked appointments can only change status");
+        }
     }
 
     @Override
@@ -89,23 +124,25 @@ public class Appointment {
         if (!(o instanceof Appointment))
             return false;
         Appointment that = (Appointment) o;
-        return Objects.equals(doctor, that.doctor) &&
-                Objects.equals(patient, that.patient) &&
-                Objects.equals(date, that.date) &&
-                Objects.equals(start, that.start) &&
-                Objects.equals(end, that.end);
+        return Objects.equals(getDoctor(), that.getDoctor()) &&
+                Objects.equals(getPatient(), that.getPatient()) &&
+                Objects.equals(getDate(), that.getDate()) &&
+                Objects.equals(getStart(), that.getStart()) &&
+                Objects.equals(getEnd(), that.getEnd());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(doctor, patient, date, start, end);
+        return Objects.hash(getDoctor(), getPatient(), getDate(), getStart(), getEnd());
     }
 
     @Override
     public String toString() {
+        Patient patient = getPatient();
+        Doctor doctor = getDoctor();
         return String.format("Прийом: %s %s у лікаря %s %s (%s), дата: %s, %s-%s, статус: %s",
                 patient.getFirstName(), patient.getLastName(),
                 doctor.getFirstName(), doctor.getLastName(), doctor.getSpecialization().getUkrainianName(),
-                date, start, end, status);
+                getDate(), getStart(), getEnd(), getStatus());
     }
 }
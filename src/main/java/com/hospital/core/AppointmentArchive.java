@@ -0,0 +1,284 @@
+package com.hospital.core;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only columnar store of past appointments. Each appointment is one row of parallel
+ * primitive arrays (doctor and patient reference, epoch day, start and end minute,
+ * status), about 25 bytes including the row lists of its doctor and patient, instead of
+ * an {@link Appointment} object with its dates, times and two tree entries. Rows are in
+ * chronological order, so scanning an owner's rows walks the columns forwards. The
+ * few appointments whose times have seconds also keep their exact times on the side.
+ *
+ * <p>Archived appointments are handed out as lightweight {@link Appointment} views that
+ * are created on access and read the columns. Only their status can be changed.
+ */
+public final class AppointmentArchive {
+    private static final Comparator<Appointment> CHRONOLOGICAL = Comparator
+            .comparing(Appointment::getDate)
+            .thenComparing(Appointment::getStart);
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    private final LocalDate cutoff;
+    private final Doctor[] doctors;
+    private final Patient[] patients;
+    private final int[] doctorRefs;
+    private final int[] patientRefs;
+    private final int[] epochDays;
+    private final short[] starts;
+    private final short[] ends;
+    private final byte[] statuses;
+    private final Map<Integer, LocalTime[]> exactTimes = new HashMap<>();
+    private final BitSet removed = new BitSet();
+
+    private AppointmentArchive(LocalDate cutoff, Appointment[] rows) {
+        this.cutoff = cutoff;
+        Map<Doctor, Integer> doctorIndex = new IdentityHashMap<>();
+        Map<Patient, Integer> patientIndex = new IdentityHashMap<>();
+        doctorRefs = new int[rows.length];
+        patientRefs = new int[rows.length];
+        epochDays = new int[rows.length];
+        starts = new short[rows.length];
+        ends = new short[rows.length];
+        statuses = new byte[rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            Appointment appointment = rows[row];
+            doctorRefs[row] = refOf(appointment.getDoctor(), doctorIndex);
+            patientRefs[row] = refOf(appointment.getPatient(), patientIndex);
+            epochDays[row] = Math.toIntExact(appointment.getDate().toEpochDay());
+            LocalTime start = appointment.getStart();
+            LocalTime end = appointment.getEnd();
+            starts[row] = (short) Occupancy.floorMinute(start);
+            ends[row] = (short) Occupancy.ceilMinute(end);
+            if (hasSeconds(start) || hasSeconds(end)) {
+                exactTimes.put(row, new LocalTime[] { start, end });
+            }
+            statuses[row] = (byte) (appointment.getStatus() == null ? -1 : appointment.getStatus().ordinal());
+        }
+        doctors = new Doctor[doctorIndex.size()];
+        patients = new Patient[patientIndex.size()];
+        for (Map.Entry<Doctor, Integer> entry : doctorIndex.entrySet()) {
+            doctors[entry.getValue()] = entry.getKey();
+        }
+        for (Map.Entry<Patient, Integer> entry : patientIndex.entrySet()) {
+            patients[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    private static boolean hasSeconds(LocalTime time) {
+        return time.getSecond() != 0 || time.getNano() != 0;
+    }
+
+    private static <T> int refOf(T owner, Map<T, Integer> index) {
+        return owner == null ? -1 : index.computeIfAbsent(owner, key -> index.size());
+    }
+
+    /**
+     * Moves every appointment dated before {@code cutoff} out of the schedules of
+     * {@code doctors} and {@code patients} into a new archive. Appointments archived
+     * earlier are carried over.
+     */
+    static AppointmentArchive archive(LocalDate cutoff, Collection<Doctor> doctors, Collection<Patient> patients) {
+        // Appointments are collected by equality, since every access to an archived one
+        // creates a new view of it.
+        Set<Appointment> unique = new HashSet<>();
+        for (Doctor doctor : doctors) {
+            doctor.schedule.collectBefore(cutoff, unique);
+        }
+        for (Patient patient : patients) {
+            patient.schedule.collectBefore(cutoff, unique);
+        }
+        Appointment[] rows = unique.toArray(new Appointment[0]);
+        Arrays.sort(rows, CHRONOLOGICAL);
+        AppointmentArchive archive = new AppointmentArchive(cutoff, rows);
+
+        Map<Appointment, Integer> rowOf = new HashMap<>();
+        for (int row = 0; row < rows.length; row++) {
+            rowOf.put(rows[row], row);
+        }
+        for (Doctor doctor : doctors) {
+            doctor.schedule.archive(archive, rowOf);
+        }
+        for (Patient patient : patients) {
+            patient.schedule.archive(archive, rowOf);
+        }
+        return archive;
+    }
+
+    public LocalDate getCutoff() {
+        return cutoff;
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    /**
+     * First row dated on or after {@code epochDay}.
+     */
+    int firstRowOn(long epochDay) {
+        int low = 0;
+        int high = epochDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int epochDay(int row) {
+        return epochDays[row];
+    }
+
+    /**
+     * Minute the appointment of {@code row} starts in, like {@link Occupancy} counts it.
+     */
+    int startMinute(int row) {
+        return starts[row];
+    }
+
+    /**
+     * First minute after the appointment of {@code row}, rounded up like
+     * {@link Occupancy} rounds an end with seconds.
+     */
+    int endMinute(int row) {
+        return ends[row];
+    }
+
+    /**
+     * Exact start and end of {@code row}, or {@code null} if both are whole minutes.
+     */
+    private LocalTime[] exactTimes(int row) {
+        return exactTimes.isEmpty() ? null : exactTimes.get(row);
+    }
+
+    synchronized Appointment.Status status(int row) {
+        byte status = statuses[row];
+        return status < 0 ? null : STATUSES[status];
+    }
+
+    private synchronized void setStatus(int row, Appointment.Status status) {
+        statuses[row] = (byte) (status == null ? -1 : status.ordinal());
+    }
+
+    /**
+     * Marks a row as belonging to an appointment that is gone; the row keeps its place
+     * but is no longer listed by the hospital nor carried over into later archives.
+     */
+    synchronized void remove(int row) {
+        removed.set(row);
+    }
+
+    synchronized boolean isRemoved(int row) {
+        return removed.get(row);
+    }
+
+    synchronized int removedCount() {
+        return removed.cardinality();
+    }
+
+    Appointment view(int row) {
+        return new ArchivedAppointment(this, row);
+    }
+
+    private static LocalTime timeOf(int minute) {
+        return LocalTime.of(minute / 60, minute % 60);
+    }
+
+    /**
+     * Flyweight over one row. Two views of the same row are equal, like any two
+     * appointments with the same participants and time.
+     */
+    private static final class ArchivedAppointment extends Appointment {
+        private final AppointmentArchive archive;
+        private final int row;
+
+        ArchivedAppointment(AppointmentArchive archive, int row) {
+            this.archive = archive;
+            this.row = row;
+        }
+
+        @Override
+        public Doctor getDoctor() {
+            int ref = archive.doctorRefs[row];
+            return ref < 0 ? null : archive.doctors[ref];
+        }
+
+        @Override
+        public Patient getPatient() {
+            int ref = archive.patientRefs[row];
+            return ref < 0 ? null : archive.patients[ref];
+        }
+
+        @Override
+        public LocalDate getDate() {
+            return LocalDate.ofEpochDay(archive.epochDays[row]);
+        }
+
+        @Override
+        public LocalTime getStart() {
+            LocalTime[] exact = archive.exactTimes(row);
+            return exact != null ? exact[0] : timeOf(archive.starts[row]);
+        }
+
+        @Override
+        public LocalTime getEnd() {
+            LocalTime[] exact = archive.exactTimes(row);
+            return exact != null ? exact[1] : timeOf(archive.ends[row]);
+        }
+
+        @Override
+        public Status getStatus() {
+            return archive.status(row);
+        }
+
+        @Override
+        public void setStatus(Status status) {
+            archive.setStatus(row, status);
+            statusChanged();
+        }
+
+        @Override
+        public void setDoctor(Doctor doctor) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPatient(Patient patient) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDate(LocalDate date) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStart(LocalTime start) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEnd(LocalTime end) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Archived appointments can only change status");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.hospital.core;
+
+import java.util.Comparator;
+
+/**
+ * The orders {@link Hospital#getAllAppointments(Comparator)} keeps a sorted index for.
+ * Other comparators are sorted on every call.
+ */
+public enum AppointmentOrder {
+    BY_DATE(Comparator.comparing(Appointment::getDate)),
+    BY_START_TIME(Comparator.comparing(Appointment::getStart)),
+    BY_PATIENT_ID(Comparator.comparing(a -> a.getPatient().getId())),
+    BY_DOCTOR_ID(Comparator.comparing(a -> a.getDoctor().getId()));
+
+    private final Comparator<Appointment> comparator;
+
+    AppointmentOrder(Comparator<Appointment> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Appointment> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * The constant whose comparator is {@code comparator}, or {@code null}.
+     */
+    public static AppointmentOrder of(Comparator<Appointment> comparator) {
+        for (AppointmentOrder order : values()) {
+            if (order.comparator == comparator) {
+                return order;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,420 @@
+package com.hospital.core;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hospital.core.Appointment.Status;
+
+/**
+ * Hospital-wide index of the appointments of the registered doctors, ordered by date,
+ * start, doctor id and patient id, with one index per {@link Status}. Doctors report
+ * their bookings and status changes to it as they happen. Archived appointments are not
+ * indexed; they are read from the columns of the {@link AppointmentArchive}, which are
+ * already in chronological order.
+ *
+ * <p>Doctors whose appointments are loaded lazily are only noted; their appointments are
+ * indexed by the first query, so that registering them does not load anything.
+ */
+final class AppointmentRegistry {
+    static final Comparator<Appointment> ORDER = AppointmentRegistry::compare;
+
+    private final ConcurrentSkipListMap<Appointment, Appointment> live = new ConcurrentSkipListMap<>(ORDER);
+    private final EnumMap<Status, ConcurrentSkipListSet<Appointment>> byStatus = new EnumMap<>(Status.class);
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final Set<Doctor> pending = ConcurrentHashMap.newKeySet();
+    private final Map<AppointmentOrder, SortedView> sorted = new ConcurrentHashMap<>();
+    private volatile AppointmentArchive archive;
+
+    AppointmentRegistry() {
+        for (Status status : Status.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>(ORDER));
+        }
+    }
+
+    /**
+     * {@link #ORDER}, written out so that the skip lists compare without boxing: date,
+     * start, then doctor and patient id, missing ones first.
+     */
+    private static int compare(Appointment a, Appointment b) {
+        int order = a.getDate().compareTo(b.getDate());
+        if (order == 0) {
+            order = a.getStart().compareTo(b.getStart());
+        }
+        if (order == 0) {
+            order = compareIds(a.getDoctor() == null ? null : a.getDoctor().getId(),
+                    b.getDoctor() == null ? null : b.getDoctor().getId());
+        }
+        if (order == 0) {
+            order = compareIds(a.getPatient() == null ? null : a.getPatient().getId(),
+                    b.getPatient() == null ? null : b.getPatient().getId());
+        }
+        return order;
+    }
+
+    private static int compareIds(Long a, Long b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        return Long.compare(a, b);
+    }
+
+    /**
+     * Sorts before every appointment on {@code date}.
+     */
+    private static Appointment startOf(LocalDate date) {
+        return new Appointment(null, null, date, LocalTime.MIN, LocalTime.MIN, null);
+    }
+
+    /**
+     * Indexes the appointments {@code doctor} has now, or will have once loaded, on the
+     * next query.
+     */
+    void register(Doctor doctor) {
+        pending.add(doctor);
+    }
+
+    /**
+     * Drops every appointment of {@code doctor}, archived ones included.
+     */
+    void unregister(Doctor doctor) {
+        pending.remove(doctor);
+        for (Appointment appointment : doctor.schedule.live()) {
+            remove(appointment);
+        }
+        AppointmentArchive archived = doctor.schedule.archive();
+        for (int row : doctor.schedule.archivedRows()) {
+            archived.remove(row);
+        }
+    }
+
+    void add(Appointment appointment) {
+        if (live.putIfAbsent(appointment, appointment) == null) {
+            liveCount.incrementAndGet();
+            // No status index holds it yet; a concurrent statusChanged sees it in live
+            // and moves it under the same lock, so only the current status is indexed.
+            synchronized (appointment) {
+                Status status = appointment.getStatus();
+                if (status != null && live.get(appointment) == appointment) {
+                    byStatus.get(status).add(appointment);
+                }
+            }
+            for (SortedView view : sorted.values()) {
+                view.live.add(appointment);
+            }
+        }
+    }
+
+    void remove(Appointment appointment) {
+        if (live.remove(appointment, appointment)) {
+            liveCount.decrementAndGet();
+            synchronized (appointment) {
+                for (ConcurrentSkipListSet<Appointment> index : byStatus.values()) {
+                    index.remove(appointment);
+                }
+            }
+            for (SortedView view : sorted.values()) {
+                view.live.remove(appointment);
+            }
+        }
+    }
+
+    /**
+     * Moves {@code appointment} to the index of its current status. The status is read
+     * under the appointment's lock, so concurrent changes leave it in the index of
+     * whichever status was set last.
+     */
+    void statusChanged(Appointment appointment) {
+        synchronized (appointment) {
+            if (live.get(appointment) != appointment) {
+                return;
+            }
+            Status current = appointment.getStatus();
+            for (Map.Entry<Status, ConcurrentSkipListSet<Appointment>> index : byStatus.entrySet()) {
+                if (index.getKey() == current) {
+                    index.getValue().add(appointment);
+                } else {
+                    index.getValue().remove(appointment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes over {@code next} and drops the appointments it now holds from the indexes.
+     */
+    void archived(AppointmentArchive next) {
+        Appointment cutoff = startOf(next.getCutoff());
+        for (Appointment appointment : live.headMap(cutoff).keySet()) {
+            remove(appointment);
+        }
+        archive = next;
+    }
+
+    AppointmentArchive archive() {
+        return archive;
+    }
+
+    /**
+     * Indexes the appointments of the pending doctors, in {@link #ORDER} so that each
+     * insert lands next to the previous one.
+     */
+    private void settle() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Appointment> settled = new ArrayList<>();
+        for (Doctor doctor : pending) {
+            if (pending.remove(doctor)) {
+                settled.addAll(doctor.schedule.live());
+            }
+        }
+        settled.sort(ORDER);
+        for (Appointment appointment : settled) {
+            add(appointment);
+        }
+    }
+
+    /**
+     * Archived appointments first, then the others in {@link #ORDER}. Iterators are
+     * weakly consistent.
+     */
+    Collection<Appointment> all() {
+        settle();
+        AppointmentArchive archived = archive;
+        return new AbstractCollection<Appointment>() {
+            @Override
+            public Iterator<Appointment> iterator() {
+                return new ArchivedThenLive(archived, 0, archived == null ? 0 : archived.size(),
+                        live.keySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return (archived == null ? 0 : archived.size() - archived.removedCount()) + liveCount.get();
+            }
+        };
+    }
+
+    /**
+     * The same appointments as {@link #all()} in the order of {@code order}, ties broken
+     * by {@link #ORDER}. The first call for an order copies the index into a skip list of
+     * its own, which {@link #add} and {@link #remove} keep up to date from then on, so
+     * every later call is a walk of it. Archived rows are sorted once per archive and
+     * merged in while iterating. There is at most one view per {@link AppointmentOrder}.
+     */
+    Collection<Appointment> sortedBy(AppointmentOrder order) {
+        settle();
+        SortedView view = sorted.get(order);
+        if (view == null) {
+            view = new SortedView(order.getComparator());
+            SortedView raced = sorted.putIfAbsent(order, view);
+            if (raced != null) {
+                view = raced;
+            } else {
+                fill(view);
+            }
+        }
+        AppointmentArchive archived = archive;
+        int[] rows = view.archivedRows(archived);
+        SortedView found = view;
+        return new AbstractCollection<Appointment>() {
+            @Override
+            public Iterator<Appointment> iterator() {
+                return new Merged(found.order, archived, rows, found.live.iterator());
+            }
+
+            @Override
+            public int size() {
+                return (archived == null ? 0 : archived.size() - archived.removedCount()) + liveCount.get();
+            }
+        };
+    }
+
+    /**
+     * Copies the index into a view that is already published, so that bookings made
+     * meanwhile reach it either way. Appointments removed during the copy may have been
+     * copied after their removal, so they are looked up again afterwards.
+     */
+    private void fill(SortedView view) {
+        view.live.addAll(live.keySet());
+        for (Appointment appointment : view.live) {
+            if (live.get(appointment) != appointment) {
+                view.live.remove(appointment);
+            }
+        }
+    }
+
+    /**
+     * Appointments from {@code from} inclusive to {@code to} exclusive, archived ones
+     * included, in chronological order.
+     */
+    List<Appointment> between(LocalDate from, LocalDate to) {
+        settle();
+        List<Appointment> found = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return found;
+        }
+        AppointmentArchive archived = archive;
+        if (archived != null && from.isBefore(archived.getCutoff())) {
+            int first = archived.firstRowOn(from.toEpochDay());
+            int last = archived.firstRowOn(to.toEpochDay());
+            new ArchivedThenLive(archived, first, last, null).forEachRemaining(found::add);
+        }
+        found.addAll(live.subMap(startOf(from), startOf(to)).keySet());
+        return found;
+    }
+
+    /**
+     * Appointments with {@code status}, archived ones first, each part in chronological
+     * order. The archived part is a scan of the archive's status column.
+     */
+    List<Appointment> withStatus(Status status) {
+        settle();
+        List<Appointment> found = new ArrayList<>();
+        AppointmentArchive archived = archive;
+        if (archived != null) {
+            for (int row = 0; row < archived.size(); row++) {
+                if (archived.status(row) == status && !archived.isRemoved(row)) {
+                    found.add(archived.view(row));
+                }
+            }
+        }
+        found.addAll(byStatus.get(status));
+        return found;
+    }
+
+    /**
+     * Views of the rows from {@code row} up to {@code end} that are not removed, followed
+     * by {@code live} if it is given.
+     */
+    private static final class ArchivedThenLive implements Iterator<Appointment> {
+        private final AppointmentArchive archive;
+        private final int end;
+        private final Iterator<Appointment> live;
+        private int row;
+
+        ArchivedThenLive(AppointmentArchive archive, int row, int end, Iterator<Appointment> live) {
+            this.archive = archive;
+            this.row = row;
+            this.end = end;
+            this.live = live;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (row < end && archive.isRemoved(row)) {
+                row++;
+            }
+            return row < end || (live != null && live.hasNext());
+        }
+
+        @Override
+        public Appointment next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return row < end ? archive.view(row++) : live.next();
+        }
+    }
+
+    private static final class SortedView {
+        private static final int[] NO_ROWS = new int[0];
+
+        final Comparator<Appointment> order;
+        final ConcurrentSkipListSet<Appointment> live;
+        private AppointmentArchive archive;
+        private int[] archivedRows = NO_ROWS;
+
+        SortedView(Comparator<Appointment> order) {
+            this.order = order.thenComparing(ORDER);
+            this.live = new ConcurrentSkipListSet<>(this.order);
+        }
+
+        /**
+         * Rows of {@code current} in this view's order, sorted when the archive changes.
+         */
+        synchronized int[] archivedRows(AppointmentArchive current) {
+            if (current != archive) {
+                Appointment[] views = new Appointment[current.size()];
+                Integer[] rows = new Integer[views.length];
+                for (int row = 0; row < views.length; row++) {
+                    views[row] = current.view(row);
+                    rows[row] = row;
+                }
+                Arrays.sort(rows, (a, b) -> order.compare(views[a], views[b]));
+                archivedRows = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    archivedRows[i] = rows[i];
+                }
+                archive = current;
+            }
+            return archivedRows;
+        }
+    }
+
+    /**
+     * Merges the sorted rows of an archive, skipping removed ones, with a sorted view of
+     * live appointments.
+     */
+    private static final class Merged implements Iterator<Appointment> {
+        private final Comparator<Appointment> order;
+        private final AppointmentArchive archive;
+        private final int[] rows;
+        private final Iterator<Appointment> live;
+        private int position;
+        private Appointment nextArchived;
+        private Appointment nextLive;
+
+        Merged(Comparator<Appointment> order, AppointmentArchive archive, int[] rows, Iterator<Appointment> live) {
+            this.order = order;
+            this.archive = archive;
+            this.rows = rows;
+            this.live = live;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextArchived == null && position < rows.length) {
+                int row = rows[position++];
+                if (!archive.isRemoved(row)) {
+                    nextArchived = archive.view(row);
+                }
+            }
+            if (nextLive == null && live.hasNext()) {
+                nextLive = live.next();
+            }
+            return nextArchived != null || nextLive != null;
+        }
+
+        @Override
+        public Appointment next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Appointment next;
+            if (nextLive == null || (nextArchived != null && order.compare(nextArchived, nextLive) <= 0)) {
+                next = nextArchived;
+                nextArchived = null;
+            } else {
+                next = nextLive;
+                nextLive = null;
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hospital.core;
+
+/**
+ * One entry of a batch booking: a visit of a patient either to a given doctor or to
+ * whichever doctor of a specialty is free first.
+ */
+public class BookingRequest {
+    private final Patient patient;
+    private final Doctor doctor;
+    private final MedicalSpecialty specialty;
+
+    public BookingRequest(Patient patient, Doctor doctor) {
+        this.patient = patient;
+        this.doctor = doctor;
+        this.specialty = null;
+    }
+
+    public BookingRequest(Patient patient, MedicalSpecialty specialty) {
+        this.patient = patient;
+        this.doctor = null;
+        this.specialty = specialty;
+    }
+
+    public Patient getPatient() {
+        return patient;
+    }
+
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    public MedicalSpecialty getSpecialty() {
+        return specialty;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hospital.core;
+
+/**
+ * Outcome of a {@link BookingRequest}: the booked appointment, or the exception that
+ * booking it alone would have thrown.
+ */
+public class BookingResult {
+    private final BookingRequest request;
+    private final Appointment appointment;
+    private final RuntimeException failure;
+
+    BookingResult(BookingRequest request, Appointment appointment, RuntimeException failure) {
+        this.request = request;
+        this.appointment = appointment;
+        this.failure = failure;
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public boolean isBooked() {
+        return appointment != null;
+    }
+}
@@ -1,12 +1,39 @@
 package com.hospital.core;
 
-import java.time.LocalTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
 
 public abstract class BusyHuman {
-    protected boolean timesOverlap(LocalTime start1, LocalTime end1,
-            LocalTime start2, LocalTime end2) {
-        return !start1.isAfter(end2) && !start2.isAfter(end1);
+    final Schedule schedule = new Schedule();
+
+    public List<Appointment> getAppointments() {
+        return schedule.asList();
+    }
+
+    /**
+     * Appointments from {@code from} inclusive to {@code to} exclusive, in chronological
+     * order. The range is found in logarithmic time; the list is a view of
+     * {@link #getAppointments()} and is not updated by later bookings.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) {
+        return schedule.between(from, to);
+    }
+
+    public int countAppointmentsBetween(LocalDate from, LocalDate to) {
+        return schedule.count(from, to);
+    }
+
+    /**
+     * Hands over the appointments of a freshly loaded owner without materializing them:
+     * {@code loader} runs once, on the first access that needs them, and must return
+     * {@code count} non-overlapping appointments.
+     */
+    public void deferAppointments(int count, Supplier<List<Appointment>> loader) {
+        schedule.defer(count, loader);
     }
 
-    public abstract boolean canAcceptAppointment(Appointment candidate);
+    public boolean canAcceptAppointment(Appointment candidate) {
+        return schedule.isFree(candidate.getDate(), candidate.getStart(), candidate.getEnd());
+    }
 }
@@ -1,7 +1,9 @@
 package com.hospital.core;
 
 import java.time.LocalTime;
-import java.util.*;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -15,7 +17,9 @@ public class Doctor extends BusyHuman {
     private MedicalSpecialty specialization;
     private LocalTime workStart;
     private LocalTime workEnd;
-    private List<Appointment> appointments = new ArrayList<>();
+    private volatile SlotPolicy slotPolicy;
+    private volatile WorkingCalendar workingCalendar;
+    Hospital hospital;
 
     public Doctor() {
     }
@@ -60,8 +64,12 @@ public class Doctor extends BusyHuman {
         return specialization;
     }
 
-    public void setSpecialization(MedicalSpecialty specialization) {
+    public synchronized void setSpecialization(MedicalSpecialty specialization) {
+        MedicalSpecialty previous = this.specialization;
         this.specialization = specialization;
+        if (hospital != null && previous != specialization) {
+            hospital.onSpecializationChanged(this, previous);
+        }
     }
 
     public LocalTime getWorkStart() {
@@ -80,8 +88,34 @@ public class Doctor extends BusyHuman {
         this.workEnd = workEnd;
     }
 
-    public List<Appointment> getAppointments() {
-        return Collections.unmodifiableList(appointments);
+    /**
+     * Booking grid of this doctor, or {@code null} to use the one of their specialty.
+     */
+    public SlotPolicy getSlotPolicy() {
+        return slotPolicy;
+    }
+
+    public void setSlotPolicy(SlotPolicy slotPolicy) {
+        this.slotPolicy = slotPolicy;
+        Hospital owner = hospital;
+        if (owner != null) {
+            owner.onSlotPolicyChanged(this);
+        }
+    }
+
+    /**
+     * Days this doctor sees patients, or {@code null} if they work every day.
+     */
+    public WorkingCalendar getWorkingCalendar() {
+        return workingCalendar;
+    }
+
+    public void setWorkingCalendar(WorkingCalendar workingCalendar) {
+        this.workingCalendar = workingCalendar;
+        Hospital owner = hospital;
+        if (owner != null) {
+            owner.onCalendarChanged(this);
+        }
     }
 
     public void addAppointment(Appointment appointment) {
@@ -93,19 +127,20 @@ public class Doctor extends BusyHuman {
             throw new IllegalStateException("Given appointment overlaps existing ones");
         }
 
-        appointments.add(appointment);
+        schedule.add(appointment);
+        Hospital owner = hospital;
+        if (owner != null) {
+            owner.onAppointmentAdded(appointment);
+        }
     }
 
     @Override
-    public boolean canAcceptAppointment(Appointment candidate) {
-        for (Appointment existing : appointments) {
-            if (existing.getDate().equals(candidate.getDate())
-                    && timesOverlap(existing.getStart(), existing.getEnd(),
-                            candidate.getStart(), candidate.getEnd())) {
-                return false;
-            }
+    public void deferAppointments(int count, Supplier<List<Appointment>> loader) {
+        super.deferAppointments(count, loader);
+        Hospital owner = hospital;
+        if (owner != null) {
+            owner.onAppointmentsDeferred(this);
         }
-        return true;
     }
 
     public boolean isAppointmentWithinWorkingHours(Appointment appointment) {
@@ -136,7 +171,7 @@ public class Doctor extends BusyHuman {
                 ", Прізвище='" + lastName + '\'' +
                 ", Спеціальність='" + specialization.getUkrainianName() + '\'' +
                 ", Робочі години=" + workStart + " - " + workEnd +
-                ", К-сть призначень=" + appointments.size() +
+                ", К-сть призначень=" + schedule.size() +
                 '}';
     }
 }
@@ -1,17 +1,28 @@
 package com.hospital.core;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.hospital.core.Appointment.Status;
@@ -22,86 +33,452 @@ import com.hospital.io.json.HospitalSerializer;
 @JsonSerialize(using = HospitalSerializer.class)
 @JsonDeserialize(using = HospitalDeserializer.class)
 public class Hospital {
-    @JsonProperty("doctors")
-    private HashMap<Long, Doctor> doctors;
+    public static final int DEFAULT_SEARCH_HORIZON_DAYS = 366;
 
-    @JsonProperty("patients")
-    private HashMap<Long, Patient> patients;
+    private static final int INLINE_SEARCH_DAYS = 7;
+    private static final Comparator<Doctor> DOCTORS_BY_ID = Comparator.comparing(Doctor::getId,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
 
-    private Long doctorIdCounter = 1l;
-    private Long patientIdCounter = 1l;
+    private final LongKeyMap<Doctor> doctors = new LongKeyMap<>(Runtime.getRuntime().availableProcessors() * 4);
+    private final LongKeyMap<Patient> patients = new LongKeyMap<>(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final EnumMap<MedicalSpecialty, Set<Doctor>> doctorsBySpecialty = new EnumMap<>(MedicalSpecialty.class);
+    private final ConcurrentHashMap<MedicalSpecialty, SlotPolicy> specialtyPolicies = new ConcurrentHashMap<>();
+    private final AppointmentRegistry appointments = new AppointmentRegistry();
+    private final StripedLocks bookingLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 16);
+
+    private final IdAllocator doctorIds = new IdAllocator("Maximum number of doctors reached");
+    private final IdAllocator patientIds = new IdAllocator("Maximum number of patients reached");
+
+    private volatile HospitalMutationListener listener = HospitalMutationListener.NONE;
+    private volatile int searchHorizonDays = DEFAULT_SEARCH_HORIZON_DAYS;
 
     public Hospital() {
-        doctors = new HashMap<>();
-        patients = new HashMap<>();
+        for (MedicalSpecialty specialty : MedicalSpecialty.values()) {
+            doctorsBySpecialty.put(specialty, new ConcurrentSkipListSet<>(DOCTORS_BY_ID));
+        }
+    }
+
+    public void setMutationListener(HospitalMutationListener listener) {
+        this.listener = listener == null ? HospitalMutationListener.NONE : listener;
+    }
+
+    /**
+     * Sets the booking grid of the doctors of {@code specialty} that have none of their
+     * own; {@code null} restores {@link SlotPolicy#DEFAULT}.
+     */
+    public void setSlotPolicy(MedicalSpecialty specialty, SlotPolicy policy) {
+        if (specialty == null)
+            throw new IllegalArgumentException("Enum value is null");
+        if (policy == null) {
+            specialtyPolicies.remove(specialty);
+        } else {
+            specialtyPolicies.put(specialty, policy);
+        }
+        listener.specialtySlotPolicyChanged(specialty, policy);
+    }
+
+    /**
+     * The policies set with {@link #setSlotPolicy(MedicalSpecialty, SlotPolicy)}, by
+     * specialty.
+     */
+    public Map<MedicalSpecialty, SlotPolicy> getSpecialtySlotPolicies() {
+        Map<MedicalSpecialty, SlotPolicy> policies = new EnumMap<>(MedicalSpecialty.class);
+        policies.putAll(specialtyPolicies);
+        return policies;
+    }
+
+    /**
+     * Number of days from tomorrow within which bookings look for a free slot; a booking
+     * with no free slot in that time fails with {@link NoAvailableSlotException}.
+     */
+    public void setSearchHorizonDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Search horizon must be at least one day");
+        }
+        this.searchHorizonDays = days;
+    }
+
+    public int getSearchHorizonDays() {
+        return searchHorizonDays;
+    }
+
+    public SlotPolicy getSlotPolicy(Doctor doctor) {
+        SlotPolicy policy = doctor.getSlotPolicy();
+        if (policy == null && doctor.getSpecialization() != null) {
+            policy = specialtyPolicies.get(doctor.getSpecialization());
+        }
+        return policy == null ? SlotPolicy.DEFAULT : policy;
     }
 
     public List<Doctor> findDoctorsBySpecialty(MedicalSpecialty specialty) {
         if (specialty == null)
             throw new IllegalArgumentException("Enum value is null");
 
-        return doctors.values().stream()
-                .filter(doctor -> doctor.getSpecialization() == specialty)
-                .collect(Collectors.toList());
+        return new ArrayList<>(doctorsBySpecialty.get(specialty));
     }
 
     public void addDoctor(Doctor doctor) {
-        doctors.put(doctor.getId(), doctor);
+        doctorIds.seed(doctor.getId());
+        int stripe = bookingLocks.stripeOf(doctor);
+        bookingLocks.lock(stripe);
+        try {
+            Doctor previous = doctors.put(doctor.getId(), doctor);
+            if (previous != null) {
+                unindexDoctor(previous, previous.getSpecialization());
+                if (previous != doctor) {
+                    appointments.unregister(previous);
+                }
+                previous.hospital = null;
+            }
+            indexDoctor(doctor);
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
+        appointments.register(doctor);
+    }
+
+    private void indexDoctor(Doctor doctor) {
+        doctor.hospital = this;
+        if (doctor.getSpecialization() != null) {
+            doctorsBySpecialty.get(doctor.getSpecialization()).add(doctor);
+        }
+    }
+
+    private void unindexDoctor(Doctor doctor, MedicalSpecialty specialty) {
+        if (specialty != null) {
+            doctorsBySpecialty.get(specialty).remove(doctor);
+        }
+    }
+
+    void onSpecializationChanged(Doctor doctor, MedicalSpecialty previous) {
+        int stripe = bookingLocks.stripeOf(doctor);
+        bookingLocks.lock(stripe);
+        try {
+            if (doctors.get(doctor.getId()) != doctor) {
+                return;
+            }
+            unindexDoctor(doctor, previous);
+            indexDoctor(doctor);
+            listener.doctorSpecializationChanged(doctor.getId(), doctor.getSpecialization());
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
+    }
+
+    void onSlotPolicyChanged(Doctor doctor) {
+        int stripe = bookingLocks.stripeOf(doctor);
+        bookingLocks.lock(stripe);
+        try {
+            if (doctors.get(doctor.getId()) == doctor) {
+                listener.doctorSlotPolicyChanged(doctor.getId(), doctor.getSlotPolicy());
+            }
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
+    }
+
+    void onCalendarChanged(Doctor doctor) {
+        int stripe = bookingLocks.stripeOf(doctor);
+        bookingLocks.lock(stripe);
+        try {
+            if (doctors.get(doctor.getId()) == doctor) {
+                listener.doctorCalendarChanged(doctor.getId(), doctor.getWorkingCalendar());
+            }
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
+    }
+
+    void onAppointmentAdded(Appointment appointment) {
+        appointments.add(appointment);
+    }
+
+    /**
+     * Reindexes {@code appointment} and journals its status while both stripes are held,
+     * so the record is appended before the deletion of its doctor or patient. Once either
+     * is deleted the change is no longer journaled.
+     */
+    void onStatusChanged(Appointment appointment) {
+        Doctor doctor = appointment.getDoctor();
+        Patient patient = appointment.getPatient();
+        int doctorStripe = bookingLocks.stripeOf(doctor);
+        int patientStripe = patient == null ? doctorStripe : bookingLocks.stripeOf(patient);
+        bookingLocks.lockPair(doctorStripe, patientStripe);
+        try {
+            synchronized (appointment) {
+                appointments.statusChanged(appointment);
+                if (doctors.get(doctor.getId()) == doctor && patient != null
+                        && patients.get(patient.getId()) == patient) {
+                    listener.appointmentStatusChanged(appointment);
+                }
+            }
+        } finally {
+            bookingLocks.unlockPair(doctorStripe, patientStripe);
+        }
+    }
+
+    void onAppointmentsDeferred(Doctor doctor) {
+        appointments.register(doctor);
     }
 
     public void addPatient(Patient patient) {
-        patients.put(patient.getId(), patient);
+        patientIds.seed(patient.getId());
+        int stripe = bookingLocks.stripeOf(patient);
+        bookingLocks.lock(stripe);
+        try {
+            patients.put(patient.getId(), patient);
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
     }
 
     public Appointment createNearestAvailableAppointment(Patient patient, Doctor doctor) {
         if (patient == null || doctor == null) {
             throw new IllegalArgumentException("Passing null arguments to function is forbidden");
         }
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        return book(doctor, patient, tomorrow, lastSlot(tomorrow));
+    }
 
-        LocalDate date = LocalDate.now().plusDays(1);
-        Duration duration = Duration.ofMinutes(30);
-        LocalTime start = doctor.getWorkStart();
+    /**
+     * Books the earliest visit of {@code patient} with any doctor of {@code specialty}.
+     * Equally early slots go to the doctor with the lowest id.
+     */
+    public Appointment createEarliestAppointment(Patient patient, MedicalSpecialty specialty) {
+        if (patient == null || specialty == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        Doctor[] candidates = doctorsBySpecialty.get(specialty).toArray(new Doctor[0]);
+        if (candidates.length == 0) {
+            throw new NoSuchElementException("No doctors with specialty " + specialty);
+        }
 
+        LocalDate from = LocalDate.now().plusDays(1);
+        long lastSlot = lastSlot(from);
+        long[] slots = new long[candidates.length];
         while (true) {
-            while (start.plus(duration).compareTo(doctor.getWorkEnd()) <= 0) {
-                LocalTime end = start.plus(duration);
-                Appointment candidate = new Appointment(doctor, patient, date, start, end, Status.ACTIVE);
-
-                if (doctor.canAcceptAppointment(candidate) && patient.canAcceptAppointment(candidate)) {
-                    doctor.addAppointment(candidate);
-                    patient.addAppointment(candidate);
-                    return candidate;
-                }
+            int chosen = findEarliest(candidates, patient, from, lastSlot, slots);
+            if (chosen < 0) {
+                throw noSlot("any doctor with specialty " + specialty);
+            }
+            Appointment booked = tryBook(candidates[chosen], patient, slots[chosen]);
+            if (booked != null) {
+                return booked;
+            }
+            from = SlotFinder.dateOf(slots[chosen]);
+        }
+    }
 
-                start = start.plusMinutes(30);
+    /**
+     * Index of the doctor with the earliest common free slot, which is left in
+     * {@code slots}. Every doctor is first searched inline over the next few days, each
+     * search stopping once it cannot beat the best slot so far. Only if none of them has
+     * a free slot in that window are the rest searched in parallel, sharing the best slot
+     * found so that the others can stop early. Returns -1 if no doctor has a free slot
+     * up to {@code lastSlot}.
+     */
+    private int findEarliest(Doctor[] candidates, Patient patient, LocalDate from, long lastSlot, long[] slots) {
+        long windowEnd = Math.min(lastSlot, (from.toEpochDay() + INLINE_SEARCH_DAYS) * Occupancy.MINUTES_PER_DAY - 1);
+        long best = Long.MAX_VALUE;
+        int chosen = -1;
+        for (int i = 0; i < candidates.length; i++) {
+            long bound = Math.min(best, windowEnd);
+            slots[i] = findNearest(candidates[i], patient, from, () -> bound);
+            if (slots[i] != SlotFinder.NO_SLOT && slots[i] < best) {
+                best = slots[i];
+                chosen = i;
             }
+        }
+        if (chosen >= 0 || windowEnd == lastSlot) {
+            return chosen;
+        }
 
-            date = date.plusDays(1);
-            start = doctor.getWorkStart();
+        LocalDate later = from.plusDays(INLINE_SEARCH_DAYS);
+        AtomicLong shared = new AtomicLong(lastSlot);
+        IntStream.range(0, candidates.length).parallel().forEach(i -> {
+            slots[i] = findNearest(candidates[i], patient, later, shared::get);
+            if (slots[i] != SlotFinder.NO_SLOT) {
+                shared.accumulateAndGet(slots[i], Math::min);
+            }
+        });
+        for (int i = 0; i < candidates.length; i++) {
+            if (slots[i] != SlotFinder.NO_SLOT && slots[i] == shared.get()) {
+                return i;
+            }
         }
+        return -1;
     }
 
-    public Patient createPatient(String firstName, String lastName, LocalDate dateOfBirth) {
-        Long id = generateUniquePatientId();
-        Patient patient = new Patient(id, firstName, lastName, dateOfBirth);
-        patients.put(id, patient);
-        return patient;
+    /**
+     * Books every request in order, with the same result as booking them one by one. Each
+     * doctor's search starts from the first day that still has a free slot in their own
+     * schedule; that day is tracked across the batch instead of being found again from
+     * tomorrow for every request. A request for a specialty goes to the doctor with the
+     * earliest common free slot. Failed requests do not stop the batch.
+     */
+    public List<BookingResult> createNearestAvailableAppointments(List<BookingRequest> requests) {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        long lastSlot = lastSlot(tomorrow);
+        Map<Doctor, LocalDate> cursors = new IdentityHashMap<>();
+        List<BookingResult> results = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+            try {
+                results.add(new BookingResult(request, book(request, tomorrow, lastSlot, cursors), null));
+            } catch (RuntimeException e) {
+                results.add(new BookingResult(request, null, e));
+            }
+        }
+        return results;
     }
 
-    private Long generateUniquePatientId() {
-        while (patients.containsKey(patientIdCounter)) {
-            patientIdCounter++;
-            if (patientIdCounter == Long.MAX_VALUE) {
-                throw new IllegalStateException("Maximum number of patients reached");
+    private Appointment book(BookingRequest request, LocalDate tomorrow, long lastSlot,
+            Map<Doctor, LocalDate> cursors) {
+        Patient patient = request.getPatient();
+        Doctor doctor = request.getDoctor();
+        if (patient == null || (doctor == null && request.getSpecialty() == null)) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+
+        LocalDate from;
+        if (doctor != null) {
+            from = cursor(doctor, tomorrow, lastSlot, cursors);
+        } else {
+            Set<Doctor> candidates = doctorsBySpecialty.get(request.getSpecialty());
+            if (candidates.isEmpty()) {
+                throw new NoSuchElementException("No doctors with specialty " + request.getSpecialty());
+            }
+            // As in findEarliest, each search stops once it cannot beat the best slot so far.
+            long best = Long.MAX_VALUE;
+            for (Doctor candidate : candidates) {
+                long bound = Math.min(best, lastSlot);
+                long slot = findNearest(candidate, patient, cursor(candidate, tomorrow, lastSlot, cursors),
+                        () -> bound);
+                if (slot != SlotFinder.NO_SLOT && slot < best) {
+                    best = slot;
+                    doctor = candidate;
+                }
+            }
+            if (doctor == null) {
+                throw noSlot("any doctor with specialty " + request.getSpecialty());
             }
+            from = SlotFinder.dateOf(best);
         }
-        return patientIdCounter;
+
+        Appointment appointment = book(doctor, patient, from, lastSlot);
+        cursors.put(doctor, cursorOf(findNearest(doctor, null, cursors.get(doctor), () -> lastSlot), lastSlot));
+        return appointment;
     }
 
-    public Optional<Patient> getPatient(Long id) {
+    private LocalDate cursor(Doctor doctor, LocalDate tomorrow, long lastSlot, Map<Doctor, LocalDate> cursors) {
+        return cursors.computeIfAbsent(doctor,
+                key -> cursorOf(findNearest(key, null, tomorrow, () -> lastSlot), lastSlot));
+    }
+
+    /**
+     * Day of {@code slot}, or the day after the horizon if the doctor has no free slot
+     * left, so that every later search of the batch gives up at once.
+     */
+    private static LocalDate cursorOf(long slot, long lastSlot) {
+        return SlotFinder.dateOf(slot == SlotFinder.NO_SLOT ? lastSlot + 1 : slot);
+    }
+
+    private Appointment book(Doctor doctor, Patient patient, LocalDate from, long lastSlot) {
+        while (true) {
+            // The search runs without locks; the slot it finds is re-checked while both
+            // schedules are locked and the search resumes from that day if it was taken.
+            long slot = findNearest(doctor, patient, from, () -> lastSlot);
+            if (slot == SlotFinder.NO_SLOT) {
+                throw noSlot("doctor " + doctor.getId());
+            }
+            Appointment booked = tryBook(doctor, patient, slot);
+            if (booked != null) {
+                return booked;
+            }
+            from = SlotFinder.dateOf(slot);
+        }
+    }
+
+    /**
+     * Last slot within the search horizon of a booking that starts looking on {@code from}.
+     */
+    private long lastSlot(LocalDate from) {
+        return (from.toEpochDay() + searchHorizonDays) * Occupancy.MINUTES_PER_DAY - 1;
+    }
+
+    private NoAvailableSlotException noSlot(String whom) {
+        return new NoAvailableSlotException("No free slot with " + whom + " within "
+                + searchHorizonDays + " days");
+    }
+
+    private long findNearest(Doctor doctor, Patient patient, LocalDate from, LongSupplier limit) {
+        SlotPolicy policy = getSlotPolicy(doctor);
+        return SlotFinder.findNearest(doctor, patient, from, policy.getSlotMinutes(), policy.getVisitMinutes(), limit);
+    }
+
+    private Appointment tryBook(Doctor doctor, Patient patient, long slot) {
+        int doctorStripe = bookingLocks.stripeOf(doctor);
+        int patientStripe = bookingLocks.stripeOf(patient);
+        LocalTime start = SlotFinder.timeOf(slot);
+        Appointment candidate = new Appointment(doctor, patient, SlotFinder.dateOf(slot),
+                start, start.plusMinutes(getSlotPolicy(doctor).getVisitMinutes()), Status.ACTIVE);
+
+        bookingLocks.lockPair(doctorStripe, patientStripe);
+        try {
+            // Deletions remove the entity before taking its stripe, so a booking that
+            // passes this check is seen by the cascade of a concurrent deletion.
+            if (doctors.get(doctor.getId()) != doctor) {
+                throw new NoSuchElementException("Doctor " + doctor.getId() + " is not registered");
+            }
+            if (patients.get(patient.getId()) != patient) {
+                throw new NoSuchElementException("Patient " + patient.getId() + " is not registered");
+            }
+            if (!doctor.canAcceptAppointment(candidate) || !patient.canAcceptAppointment(candidate)) {
+                return null;
+            }
+            doctor.addAppointment(candidate);
+            patient.addAppointment(candidate);
+            // Journaled before the stripes are released, so that the record precedes the
+            // deletion of either side and any later change to the appointment.
+            listener.appointmentBooked(candidate);
+        } finally {
+            bookingLocks.unlockPair(doctorStripe, patientStripe);
+        }
+        return candidate;
+    }
+
+    /**
+     * Registers a new patient. The patient is journaled under their stripe before
+     * becoming visible, so no record about them can reach the journal first.
+     */
+    public Patient createPatient(String firstName, String lastName, LocalDate dateOfBirth) {
+        while (true) {
+            Long id = patientIds.allocate();
+            Patient patient = new Patient(id, firstName, lastName, dateOfBirth);
+            int stripe = bookingLocks.stripeOf(patient);
+            bookingLocks.lock(stripe);
+            try {
+                // addPatient takes the same stripe, so the id cannot be taken in between.
+                if (patients.get(id) == null) {
+                    listener.patientCreated(patient);
+                    patients.put(id, patient);
+                    return patient;
+                }
+            } finally {
+                bookingLocks.unlock(stripe);
+            }
+        }
+    }
+
+    public Optional<Patient> getPatient(long id) {
         return Optional.ofNullable(patients.get(id));
     }
 
+    /**
+     * Patients in no particular order. The view is weakly consistent: each iteration sees
+     * every patient registered for its whole duration exactly once, and may or may not
+     * see patients registered or deleted meanwhile. Iterating needs no extra memory.
+     */
     public Collection<Patient> getAllPatients() {
         return patients.values();
     }
@@ -111,42 +488,64 @@ public class Hospital {
         if (patient == null) {
             throw new NoSuchElementException();
         }
-        if (firstName != null)
-            patient.setFirstName(firstName);
-        if (lastName != null)
-            patient.setLastName(lastName);
-        if (dateOfBirht != null)
-            patient.setDateOfBirth(dateOfBirht);
+        int stripe = bookingLocks.stripeOf(patient);
+        bookingLocks.lock(stripe);
+        try {
+            if (patients.get(id) != patient) {
+                throw new NoSuchElementException();
+            }
+            if (firstName != null)
+                patient.setFirstName(firstName);
+            if (lastName != null)
+                patient.setLastName(lastName);
+            if (dateOfBirht != null)
+                patient.setDateOfBirth(dateOfBirht);
+            listener.patientUpdated(id, firstName, lastName, dateOfBirht);
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
     }
 
+    /**
+     * Removes the patient together with their appointments, which are also taken out of
+     * their doctors' schedules.
+     */
     public void deletePatient(Long id) {
-        if (patients.remove(id) == null) {
+        Patient removed = patients.remove(id);
+        if (removed == null) {
             throw new NoSuchElementException();
         }
+        removeAppointmentsOf(removed, bookingLocks.stripeOf(removed));
+        listener.patientDeleted(id);
     }
 
     public Doctor createDoctor(String firstName, String lastName, MedicalSpecialty specialty,
             LocalTime workStart, LocalTime workEnd) {
-        Long id = generateUniqueDoctorId();
-        Doctor doctor = new Doctor(id, firstName, lastName, specialty, workStart, workEnd);
-        doctors.put(id, doctor);
-        return doctor;
-    }
-
-    private Long generateUniqueDoctorId() {
-        while (doctors.containsKey(doctorIdCounter)) {
-            doctorIdCounter++;
-            if (doctorIdCounter == Long.MAX_VALUE) {
-                throw new IllegalStateException("Maximum number of doctors reached");
+        while (true) {
+            Long id = doctorIds.allocate();
+            Doctor doctor = new Doctor(id, firstName, lastName, specialty, workStart, workEnd);
+            int stripe = bookingLocks.stripeOf(doctor);
+            bookingLocks.lock(stripe);
+            try {
+                if (doctors.get(id) == null) {
+                    listener.doctorCreated(doctor);
+                    doctors.put(id, doctor);
+                    indexDoctor(doctor);
+                    return doctor;
+                }
+            } finally {
+                bookingLocks.unlock(stripe);
             }
         }
-        return doctorIdCounter;
     }
 
     public Optional<Doctor> getDoctor(long id) {
         return Optional.ofNullable(doctors.get(id));
     }
 
+    /**
+     * Doctors in no particular order, weakly consistent like {@link #getAllPatients()}.
+     */
     public Collection<Doctor> getAllDoctors() {
         return doctors.values();
     }
@@ -156,42 +555,335 @@ public class Hospital {
         Doctor doctor = doctors.get(id);
         if (doctor == null)
             throw new NoSuchElementException();
-        if (firstName != null)
-            doctor.setFirstName(firstName);
-        if (lastName != null)
-            doctor.setLastName(lastName);
-        if (workStart != null)
-            doctor.setWorkStart(workStart);
-        if (workEnd != null)
-            doctor.setWorkEnd(workEnd);
+        int stripe = bookingLocks.stripeOf(doctor);
+        bookingLocks.lock(stripe);
+        try {
+            if (doctors.get(id) != doctor)
+                throw new NoSuchElementException();
+            if (firstName != null)
+                doctor.setFirstName(firstName);
+            if (lastName != null)
+                doctor.setLastName(lastName);
+            if (workStart != null)
+                doctor.setWorkStart(workStart);
+            if (workEnd != null)
+                doctor.setWorkEnd(workEnd);
+            listener.doctorUpdated(id, firstName, lastName, workStart, workEnd);
+        } finally {
+            bookingLocks.unlock(stripe);
+        }
     }
 
+    /**
+     * Removes the doctor together with their appointments, which are also taken out of
+     * their patients' schedules.
+     */
     public void deleteDoctor(long id) {
-        if (doctors.remove(id) == null) {
+        Doctor removed = doctors.remove(id);
+        if (removed == null) {
             throw new NoSuchElementException();
         }
+        unindexDoctor(removed, removed.getSpecialization());
+        removed.hospital = null;
+        removeAppointmentsOf(removed, bookingLocks.stripeOf(removed));
+        appointments.unregister(removed);
+        listener.doctorDeleted(id);
+    }
+
+    /**
+     * Takes every appointment of a deleted doctor or patient out of both schedules and
+     * the hospital-wide index. The appointments are found through the owner's own
+     * schedule and their back-references, so the work is proportional to their number.
+     * Locking the owner's stripe once first waits for bookings that found it still
+     * registered; each appointment is then removed under the same pair of locks as a
+     * booking.
+     */
+    private void removeAppointmentsOf(BusyHuman owner, int ownerStripe) {
+        bookingLocks.lock(ownerStripe);
+        bookingLocks.unlock(ownerStripe);
+        for (Appointment appointment : owner.getAppointments()) {
+            Doctor doctor = appointment.getDoctor();
+            Patient patient = appointment.getPatient();
+            int doctorStripe = doctor == null ? ownerStripe : bookingLocks.stripeOf(doctor);
+            int patientStripe = patient == null ? ownerStripe : bookingLocks.stripeOf(patient);
+            bookingLocks.lockPair(doctorStripe, patientStripe);
+            try {
+                if (doctor != null) {
+                    doctor.schedule.remove(appointment);
+                }
+                if (patient != null) {
+                    patient.schedule.remove(appointment);
+                }
+            } finally {
+                bookingLocks.unlockPair(doctorStripe, patientStripe);
+            }
+            appointments.remove(appointment);
+        }
+    }
+
+    /**
+     * Number of appointments of all doctors from {@code from} inclusive to {@code to}
+     * exclusive; one logarithmic range count per doctor.
+     */
+    public long countAppointmentsBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        long count = 0;
+        for (Doctor doctor : doctors.values()) {
+            count += doctor.countAppointmentsBetween(from, to);
+        }
+        return count;
+    }
+
+    /**
+     * Appointments of all doctors from {@code from} inclusive to {@code to} exclusive, in
+     * chronological order, read from the hospital-wide index.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        return appointments.between(from, to);
+    }
+
+    /**
+     * Appointments of all doctors with {@code status}, in chronological order.
+     */
+    public List<Appointment> getAppointmentsWithStatus(Status status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Enum value is null");
+        }
+        return appointments.withStatus(status);
+    }
+
+    /**
+     * Every appointment of the registered doctors in chronological order, without
+     * collecting them from the doctors. The view is weakly consistent, like
+     * {@link #getAllDoctors()}.
+     */
+    public Collection<Appointment> getAllAppointments() {
+        return appointments.all();
+    }
+
+    /**
+     * Every appointment of the registered doctors in the order of {@code order}, ties
+     * broken chronologically. For the comparator of an {@link AppointmentOrder} the first
+     * call builds a sorted index that bookings keep up to date, so later calls walk it
+     * instead of sorting. Any other comparator gets a sorted copy, made on each call.
+     */
+    public Collection<Appointment> getAllAppointments(Comparator<Appointment> order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        AppointmentOrder indexed = AppointmentOrder.of(order);
+        if (indexed != null) {
+            return appointments.sortedBy(indexed);
+        }
+        List<Appointment> copy = new ArrayList<>(appointments.all());
+        copy.sort(order.thenComparing(AppointmentRegistry.ORDER));
+        return Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * Moves every appointment dated before {@code cutoff} into a compact, read-only
+     * {@link AppointmentArchive}. Archived appointments stay visible through
+     * {@link BusyHuman#getAppointments()} and can still be cancelled or closed, but no
+     * appointment can be added before the cutoff any more. Appointments archived by an
+     * earlier call are carried over into the new archive, and the cutoff never moves back:
+     * an earlier one than the current archive's is raised to it.
+     */
+    public AppointmentArchive archiveAppointmentsBefore(LocalDate cutoff) {
+        if (cutoff == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        if (cutoff.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Only past appointments can be archived");
+        }
+        AppointmentArchive previous = appointments.archive();
+        if (previous != null && previous.getCutoff().isAfter(cutoff)) {
+            cutoff = previous.getCutoff();
+        }
+        AppointmentArchive archive = AppointmentArchive.archive(cutoff, doctors.values(), patients.values());
+        appointments.archived(archive);
+        listener.appointmentsArchived(cutoff);
+        return archive;
+    }
+
+    /**
+     * The archive made by the last {@link #archiveAppointmentsBefore} call, or
+     * {@code null} if nothing was archived.
+     */
+    public AppointmentArchive getArchive() {
+        return appointments.archive();
     }
 
     public String generateFullReport() {
         StringBuilder report = new StringBuilder();
+        try {
+            writeReport(report, ReportFilter.ALL);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return report.toString();
+    }
 
-        report.append("<-- Список лікарів та їх прийомів -->\n");
-        for (Doctor doctor : getAllDoctors()) {
-            report.append(doctor).append("\n");
-            if (doctor.getAppointments().isEmpty()) {
-                report.append("    Немає призначень\n");
-            } else {
-                for (Appointment appointment : doctor.getAppointments()) {
-                    report.append("    ").append(appointment).append("\n");
+    /**
+     * Writes the report of {@link #generateFullReport()} to {@code out} entry by entry,
+     * so that output starts at once. Doctors and patients are listed by id, which keeps
+     * pages stable. To get that order each section sorts a copy of the ids, eight bytes
+     * per doctor or patient. Apart from that the report needs no more memory than its
+     * largest entry.
+     */
+    public void writeReport(Appendable out, ReportFilter filter) throws IOException {
+        if (out == null || filter == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        writeReport(new AppendableSink(out), filter);
+    }
+
+    /**
+     * Writes the report of {@link #writeReport(Appendable, ReportFilter)} as UTF-8 with a
+     * {@link ReportRenderer}, which encodes every field straight into its buffer instead
+     * of going through {@code toString()}. The stream is flushed but not closed.
+     */
+    public void renderReport(OutputStream out, ReportFilter filter) throws IOException {
+        if (out == null || filter == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        ReportRenderer renderer = new ReportRenderer(out);
+        writeReport(new RendererSink(renderer), filter);
+        renderer.flush();
+    }
+
+    private void writeReport(ReportSink out, ReportFilter filter) throws IOException {
+        long skip = filter.getOffset();
+        long remaining = filter.getLimit();
+
+        out.text("<-- Список лікарів та їх прийомів -->\n");
+        Iterable<Doctor> listed = filter.getSpecialty() == null ? doctors.valuesInKeyOrder()
+                : doctorsBySpecialty.get(filter.getSpecialty());
+        for (Doctor doctor : listed) {
+            if (remaining == 0) {
+                return;
+            }
+            if (filter.filtersAppointments() && !hasMatchingAppointment(doctor, filter)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            out.doctor(doctor);
+            out.text("\n");
+            boolean any = false;
+            for (Appointment appointment : filter.appointmentsOf(doctor)) {
+                if (filter.matches(appointment)) {
+                    out.text("    ");
+                    out.appointment(appointment);
+                    out.text("\n");
+                    any = true;
                 }
             }
+            if (!any) {
+                out.text("    Немає призначень\n");
+            }
+            remaining--;
         }
 
-        report.append("\n<-- Список пацієнтів -->\n");
-        for (Patient patient : getAllPatients()) {
-            report.append(patient).append("\n");
+        out.text("\n<-- Список пацієнтів -->\n");
+        for (Patient patient : patients.valuesInKeyOrder()) {
+            if (remaining == 0) {
+                return;
+            }
+            if (filter.filtersAppointments() && !hasMatchingAppointment(patient, filter)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            out.patient(patient);
+            out.text("\n");
+            remaining--;
         }
+    }
 
-        return report.toString();
+    private static boolean hasMatchingAppointment(BusyHuman owner, ReportFilter filter) {
+        for (Appointment appointment : filter.appointmentsOf(owner)) {
+            if (filter.matches(appointment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Target of {@link #writeReport(ReportSink, ReportFilter)}.
+     */
+    private interface ReportSink {
+        void text(String text) throws IOException;
+
+        void doctor(Doctor doctor) throws IOException;
+
+        void patient(Patient patient) throws IOException;
+
+        void appointment(Appointment appointment) throws IOException;
+    }
+
+    private static final class AppendableSink implements ReportSink {
+        private final Appendable out;
+
+        AppendableSink(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void text(String text) throws IOException {
+            out.append(text);
+        }
+
+        @Override
+        public void doctor(Doctor doctor) throws IOException {
+            out.append(doctor.toString());
+        }
+
+        @Override
+        public void patient(Patient patient) throws IOException {
+            out.append(patient.toString());
+        }
+
+        @Override
+        public void appointment(Appointment appointment) throws IOException {
+            out.append(appointment.toString());
+        }
+    }
+
+    private static final class RendererSink implements ReportSink {
+        private final ReportRenderer out;
+
+        RendererSink(ReportRenderer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void text(String text) throws IOException {
+            out.text(text);
+        }
+
+        @Override
+        public void doctor(Doctor doctor) throws IOException {
+            out.doctor(doctor);
+        }
+
+        @Override
+        public void patient(Patient patient) throws IOException {
+            out.patient(patient);
+        }
+
+        @Override
+        public void appointment(Appointment appointment) throws IOException {
+            out.appointment(appointment);
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.hospital.core;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Receives every successful mutation made through {@link Hospital}, after it has been
+ * applied. Calls for unrelated entities may arrive concurrently and in any order.
+ */
+public interface HospitalMutationListener {
+    HospitalMutationListener NONE = new HospitalMutationListener() {
+    };
+
+    default void patientCreated(Patient patient) {
+    }
+
+    default void patientUpdated(Long id, String firstName, String lastName, LocalDate dateOfBirth) {
+    }
+
+    default void patientDeleted(Long id) {
+    }
+
+    default void doctorCreated(Doctor doctor) {
+    }
+
+    default void doctorUpdated(Long id, String firstName, String lastName, LocalTime workStart, LocalTime workEnd) {
+    }
+
+    default void doctorDeleted(long id) {
+    }
+
+    default void appointmentBooked(Appointment appointment) {
+    }
+
+    default void doctorSpecializationChanged(long id, MedicalSpecialty specialization) {
+    }
+
+    /**
+     * {@code policy} is {@code null} when the doctor goes back to the policy of their
+     * specialty.
+     */
+    default void doctorSlotPolicyChanged(long id, SlotPolicy policy) {
+    }
+
+    default void doctorCalendarChanged(long id, WorkingCalendar calendar) {
+    }
+
+    default void specialtySlotPolicyChanged(MedicalSpecialty specialty, SlotPolicy policy) {
+    }
+
+    /**
+     * Called with the appointment's lock held, so that the status it reports is the one
+     * set last.
+     */
+    default void appointmentStatusChanged(Appointment appointment) {
+    }
+
+    default void appointmentsArchived(LocalDate cutoff) {
+    }
+}
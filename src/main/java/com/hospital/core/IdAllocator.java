@@ -0,0 +1,34 @@
+package com.hospital.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out increasing ids without locking. Ids of entities added from outside, such as
+ * imported ones, are reported through {@link #seed(long)} so that the next allocation is
+ * already past them and never has to probe for a free id. Ids are never recycled: an id
+ * freed by a deletion stays unused.
+ */
+final class IdAllocator {
+    private final AtomicLong next = new AtomicLong(1);
+    private final String exhausted;
+
+    IdAllocator(String exhausted) {
+        this.exhausted = exhausted;
+    }
+
+    long allocate() {
+        long id = next.getAndIncrement();
+        if (id < 1 || id == Long.MAX_VALUE) {
+            next.set(Long.MAX_VALUE);
+            throw new IllegalStateException(exhausted);
+        }
+        return id;
+    }
+
+    /**
+     * Makes sure {@code id} is never allocated.
+     */
+    void seed(long id) {
+        next.accumulateAndGet(id == Long.MAX_VALUE ? id : id + 1, Math::max);
+    }
+}
@@ -0,0 +1,370 @@
+package com.hospital.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from primitive {@code long} keys to values, used for the registries of
+ * a {@link Hospital}. Keys are never boxed and entries need no node objects: each segment
+ * keeps its keys and values in two parallel arrays with linear probing, which takes about
+ * two thirds of the memory of a {@code ConcurrentHashMap<Long, V>}.
+ *
+ * <p>Writers lock one segment. Readers take no lock at all unless a write to the same
+ * segment overlaps them, in which case they retry under the read lock. Removed entries
+ * leave a tombstone, so an entry keeps its slot until the table is rebuilt.
+ */
+final class LongKeyMap<V> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+    /**
+     * Values are stored with release semantics so that iterators, which read the slots
+     * without the segment lock, see them fully constructed.
+     */
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    @SuppressWarnings("unchecked")
+    LongKeyMap(int minimumSegments) {
+        int count = Integer.highestOneBit(Math.max(1, minimumSegments - 1)) << 1;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+    }
+
+    V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    V put(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    V putIfAbsent(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Unmodifiable view of the values in no particular order. Its iterators walk the
+     * tables in place and need no memory of their own. Like the views of
+     * {@code ConcurrentHashMap} they never throw {@code ConcurrentModificationException}:
+     * they return every value present for the whole walk exactly once and may or may not
+     * return values added or removed meanwhile.
+     */
+    Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return LongKeyMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * The values in ascending key order. Each iteration sorts a copy of the keys, eight
+     * bytes per entry, and looks the values up as it reaches them, so it skips entries
+     * removed meanwhile and misses entries added after it started. Use {@link #values()}
+     * unless the order matters.
+     */
+    Iterable<V> valuesInKeyOrder() {
+        return KeyOrderIterator::new;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private final class SlotIterator implements Iterator<V> {
+        private int segment;
+        private Object[] table;
+        private int slot;
+        private V next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (table == null || slot == table.length) {
+                    if (segment == segments.length) {
+                        return false;
+                    }
+                    table = segments[segment++].table();
+                    slot = 0;
+                } else {
+                    next = nextValue();
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The value in the next filled slot of {@code table}, or {@code null} at its end.
+         * Entries never move within an array, so it does not matter whether
+         * {@code table} is still the one its segment uses.
+         */
+        @SuppressWarnings("unchecked")
+        private V nextValue() {
+            Object[] slots = table;
+            int i = slot;
+            Object value = null;
+            while (i < slots.length && ((value = SLOTS.getAcquire(slots, i++)) == null || value == TOMBSTONE)) {
+                value = null;
+            }
+            slot = i;
+            return (V) value;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = next;
+            next = null;
+            return value;
+        }
+    }
+
+    private final class KeyOrderIterator implements Iterator<V> {
+        private final long[] keys;
+        private int position;
+        private V next;
+
+        KeyOrderIterator() {
+            long[] copied = new long[size() + INITIAL_CAPACITY];
+            int count = 0;
+            for (Segment<V> segment : segments) {
+                int added;
+                while ((added = segment.copyKeys(copied, count)) < 0) {
+                    copied = Arrays.copyOf(copied, copied.length * 2);
+                }
+                count += added;
+            }
+            keys = Arrays.copyOf(copied, count);
+            Arrays.sort(keys);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position < keys.length) {
+                next = get(keys[position++]);
+            }
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = next;
+            next = null;
+            return value;
+        }
+    }
+
+    /**
+     * One open-addressing table. A slot is empty when its value is {@code null}, so every
+     * {@code long} is a valid key. A removal replaces the value with {@link #TOMBSTONE},
+     * which lookups step over and inserts reuse; a table with too many tombstones is
+     * rebuilt at the same capacity. Rebuilds and resizes fill new arrays and leave the
+     * old ones unchanged for iterators still walking them.
+     */
+    private static final class Segment<V> extends StampedLock {
+        private static final long serialVersionUID = 1L;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private volatile int size;
+        private int tombstones;
+
+        V get(long key, long hash) {
+            long stamp = tryOptimisticRead();
+            if (stamp != 0) {
+                V value = find(keys, values, key, hash);
+                if (validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = readLock();
+            try {
+                return find(keys, values, key, hash);
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V find(long[] keys, Object[] values, long key, long hash) {
+            // The arrays may be changing under an optimistic read, so the probe is bounded
+            // by the table size; the caller discards whatever it finds if the read failed.
+            int mask = values.length - 1;
+            if (keys.length != values.length) {
+                return null;
+            }
+            for (int i = (int) hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key && value != TOMBSTONE) {
+                    return (V) value;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            long stamp = writeLock();
+            try {
+                int mask = values.length - 1;
+                int i = (int) hash & mask;
+                int free = -1;
+                while (values[i] != null) {
+                    if (values[i] == TOMBSTONE) {
+                        if (free < 0) {
+                            free = i;
+                        }
+                    } else if (keys[i] == key) {
+                        V previous = (V) values[i];
+                        if (!onlyIfAbsent) {
+                            SLOTS.setRelease(values, i, value);
+                        }
+                        return previous;
+                    }
+                    i = (i + 1) & mask;
+                }
+                if (free >= 0) {
+                    i = free;
+                    tombstones--;
+                }
+                keys[i] = key;
+                SLOTS.setRelease(values, i, value);
+                size++;
+                if ((size + tombstones) * 4 > values.length * 3) {
+                    rebuild(size * 2 > values.length ? values.length * 2 : values.length);
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, long hash) {
+            long stamp = writeLock();
+            try {
+                int mask = values.length - 1;
+                int i = (int) hash & mask;
+                while (values[i] != null) {
+                    if (keys[i] == key && values[i] != TOMBSTONE) {
+                        V removed = (V) values[i];
+                        values[i] = TOMBSTONE;
+                        size--;
+                        tombstones++;
+                        return removed;
+                    }
+                    i = (i + 1) & mask;
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private void rebuild(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[capacity];
+            Object[] newValues = new Object[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldValues.length; j++) {
+                if (oldValues[j] != null && oldValues[j] != TOMBSTONE) {
+                    int i = (int) hash(oldKeys[j]) & mask;
+                    while (newValues[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    newKeys[i] = oldKeys[j];
+                    newValues[i] = oldValues[j];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+            tombstones = 0;
+        }
+
+        Object[] table() {
+            long stamp = tryOptimisticRead();
+            Object[] table = values;
+            if (stamp != 0 && validate(stamp)) {
+                return table;
+            }
+            stamp = readLock();
+            try {
+                return values;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Copies the keys of this segment into {@code target} from {@code offset} on and
+         * returns how many there were, or -1 if they do not fit.
+         */
+        int copyKeys(long[] target, int offset) {
+            long stamp = readLock();
+            try {
+                if (target.length - offset < size) {
+                    return -1;
+                }
+                int count = 0;
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null && values[i] != TOMBSTONE) {
+                        target[offset + count++] = keys[i];
+                    }
+                }
+                return count;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+    }
+}
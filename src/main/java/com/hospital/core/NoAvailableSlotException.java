@@ -0,0 +1,14 @@
+package com.hospital.core;
+
+/**
+ * Thrown when no free slot exists within the search horizon of a {@link Hospital}, or
+ * none can exist at all because a doctor's working hours or calendar leave no room for
+ * a visit.
+ */
+public class NoAvailableSlotException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public NoAvailableSlotException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,114 @@
+package com.hospital.core;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Minute-resolution occupancy bitmap of one schedule, one {@code long[]} of
+ * {@link #WORDS_PER_DAY} words per day. Only days from {@code firstDay} onwards are
+ * tracked, since slot search never looks into the past.
+ */
+final class Occupancy {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int WORDS_PER_DAY = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final long firstDay;
+    private volatile long[][] days = new long[0][];
+
+    Occupancy(long firstDay) {
+        this.firstDay = firstDay;
+    }
+
+    boolean tracks(long epochDay) {
+        return epochDay >= firstDay;
+    }
+
+    long[] day(long epochDay) {
+        long index = epochDay - firstDay;
+        long[][] current = days;
+        return index >= 0 && index < current.length ? current[(int) index] : null;
+    }
+
+    void mark(long epochDay, LocalTime start, LocalTime end) {
+        long[][] current = days;
+        int index = Math.toIntExact(epochDay - firstDay);
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            days = current;
+        }
+        if (current[index] == null) {
+            current[index] = new long[WORDS_PER_DAY];
+        }
+        markRange(current[index], floorMinute(start), ceilMinute(end));
+    }
+
+    void clear(long epochDay) {
+        long index = epochDay - firstDay;
+        long[][] current = days;
+        if (index >= 0 && index < current.length) {
+            current[(int) index] = null;
+        }
+    }
+
+    static void markRange(long[] words, int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        for (int w = first; w <= last; w++) {
+            long mask = -1L;
+            if (w == first)
+                mask &= -1L << from;
+            if (w == last)
+                mask &= -1L >>> (63 - (to & 63));
+            words[w] |= mask;
+        }
+    }
+
+    /**
+     * Returns the first minute in {@code [from, to]} that is busy in either bitmap, or
+     * {@code -1} when the whole range is free. A {@code null} bitmap is a free day.
+     */
+    static int firstBusyMinute(long[] a, long[] b, int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        for (int w = first; w <= last; w++) {
+            long word = (a == null ? 0L : a[w]) | (b == null ? 0L : b[w]);
+            if (w == first)
+                word &= -1L << from;
+            if (w == last)
+                word &= -1L >>> (63 - (to & 63));
+            if (word != 0L) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first minute from {@code from} on that is free in both bitmaps, or
+     * {@link #MINUTES_PER_DAY} when the rest of the day is busy.
+     */
+    static int firstFreeMinute(long[] a, long[] b, int from) {
+        int first = from >>> 6;
+        for (int w = first; w < WORDS_PER_DAY; w++) {
+            long free = ~((a == null ? 0L : a[w]) | (b == null ? 0L : b[w]));
+            if (w == first)
+                free &= -1L << from;
+            if (free != 0L) {
+                return Math.min((w << 6) + Long.numberOfTrailingZeros(free), MINUTES_PER_DAY);
+            }
+        }
+        return MINUTES_PER_DAY;
+    }
+
+    static int floorMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    static int ceilMinute(LocalTime time) {
+        int minute = floorMinute(time);
+        if (time.getSecond() != 0 || time.getNano() != 0) {
+            minute++;
+        }
+        return Math.min(minute, MINUTES_PER_DAY - 1);
+    }
+}
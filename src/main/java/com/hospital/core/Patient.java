@@ -1,7 +1,7 @@
 package com.hospital.core;
 
 import java.time.LocalDate;
-import java.util.*;
+import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -13,7 +13,6 @@ public class Patient extends BusyHuman {
     private String firstName;
     private String lastName;
     private LocalDate dateOfBirth;
-    private List<Appointment> appointments = new ArrayList<>();
 
     public Patient() {
     }
@@ -58,33 +57,15 @@ public class Patient extends BusyHuman {
         this.dateOfBirth = dateOfBirth;
     }
 
-    public List<Appointment> getAppointments() {
-        return Collections.unmodifiableList(appointments);
-    }
-
     public void addAppointment(Appointment appointment) {
         if (!canAcceptAppointment(appointment)) {
             throw new IllegalStateException("Given appointment overlaps existing ones");
         }
-        appointments.add(appointment);
-    }
-
-    @Override
-    public boolean canAcceptAppointment(Appointment candidate) {
-        for (Appointment existing : appointments) {
-            if (existing.getDate().equals(candidate.getDate())
-                    && timesOverlap(existing.getStart(), existing.getEnd(),
-                            candidate.getStart(), candidate.getEnd())) {
-                return false;
-            }
-        }
-        return true;
+        schedule.add(appointment);
     }
 
     public long countAppointmentsInYear(int year) {
-        return appointments.stream()
-                .filter(app -> app.getDate().getYear() == year)
-                .count();
+        return schedule.count(LocalDate.ofYearDay(year, 1), LocalDate.ofYearDay(year + 1, 1));
     }
 
     @Override
@@ -109,7 +90,7 @@ public class Patient extends BusyHuman {
                 ", Ім'я='" + firstName + '\'' +
                 ", Прізвище='" + lastName + '\'' +
                 ", Дата народження=" + dateOfBirth +
-                ", К-сть записів=" + appointments.size() +
+                ", К-сть записів=" + schedule.size() +
                 '}';
     }
 }
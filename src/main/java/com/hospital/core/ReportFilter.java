@@ -0,0 +1,115 @@
+package com.hospital.core;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.hospital.core.Appointment.Status;
+
+/**
+ * Selection and page of a {@link Hospital#writeReport(Appendable, ReportFilter) report}.
+ * Instances are immutable; the {@code with...} methods return modified copies.
+ *
+ * <p>The specialty, dates and status select appointments. Without any of them every
+ * doctor and patient is listed, a doctor without appointments with a note saying so.
+ * With any of them set, the same rule holds for both sections: a doctor or patient is
+ * listed only if they have a matching appointment, and only matching appointments are
+ * listed under a doctor. A page counts report entries, a doctor with their appointments
+ * or a patient, across both sections.
+ */
+public final class ReportFilter {
+    public static final ReportFilter ALL = new ReportFilter(null, null, null, null, 0, Long.MAX_VALUE);
+
+    private final MedicalSpecialty specialty;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Status status;
+    private final long offset;
+    private final long limit;
+
+    private ReportFilter(MedicalSpecialty specialty, LocalDate from, LocalDate to, Status status,
+            long offset, long limit) {
+        this.specialty = specialty;
+        this.from = from;
+        this.to = to;
+        this.status = status;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Only doctors of {@code specialty}; {@code null} for all.
+     */
+    public ReportFilter withSpecialty(MedicalSpecialty specialty) {
+        return new ReportFilter(specialty, from, to, status, offset, limit);
+    }
+
+    /**
+     * Only appointments from {@code from} inclusive to {@code to} exclusive; either bound
+     * may be {@code null} for an open range.
+     */
+    public ReportFilter withDates(LocalDate from, LocalDate to) {
+        return new ReportFilter(specialty, from, to, status, offset, limit);
+    }
+
+    /**
+     * Only appointments with {@code status}; {@code null} for all.
+     */
+    public ReportFilter withStatus(Status status) {
+        return new ReportFilter(specialty, from, to, status, offset, limit);
+    }
+
+    /**
+     * Skips the first {@code offset} entries and stops after {@code limit} more.
+     */
+    public ReportFilter withPage(long offset, long limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Page offset and limit must not be negative");
+        }
+        return new ReportFilter(specialty, from, to, status, offset, limit);
+    }
+
+    public MedicalSpecialty getSpecialty() {
+        return specialty;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    boolean filtersAppointments() {
+        return specialty != null || from != null || to != null || status != null;
+    }
+
+    /**
+     * Appointments of {@code owner} in the date range, before the status and specialty
+     * are checked.
+     */
+    List<Appointment> appointmentsOf(BusyHuman owner) {
+        if (from == null && to == null) {
+            return owner.getAppointments();
+        }
+        return owner.getAppointmentsBetween(from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to);
+    }
+
+    boolean matches(Appointment appointment) {
+        return (status == null || appointment.getStatus() == status)
+                && (specialty == null || (appointment.getDoctor() != null
+                        && appointment.getDoctor().getSpecialization() == specialty));
+    }
+}
@@ -0,0 +1,298 @@
+package com.hospital.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Writes doctors, patients and appointments as UTF-8, byte for byte the same as their
+ * {@code toString()}, without building any intermediate strings. Fields are encoded
+ * straight into a reusable buffer; the fixed parts of each line and the names of
+ * specialties and statuses are encoded once and copied. The buffer is written to the
+ * stream when it fills up and on {@link #flush()}.
+ *
+ * <p>A renderer is not thread-safe.
+ */
+public final class ReportRenderer {
+    private static final byte[] DOCTOR_ID = utf8("Лікар {ID=");
+    private static final byte[] PATIENT_ID = utf8("Пацієнт {ID=");
+    private static final byte[] FIRST_NAME = utf8(", Ім'я='");
+    private static final byte[] LAST_NAME = utf8("', Прізвище='");
+    private static final byte[] SPECIALTY = utf8("', Спеціальність='");
+    private static final byte[] WORKING_HOURS = utf8("', Робочі години=");
+    private static final byte[] APPOINTMENT_COUNT = utf8(", К-сть призначень=");
+    private static final byte[] DATE_OF_BIRTH = utf8("', Дата народження=");
+    private static final byte[] RECORD_COUNT = utf8(", К-сть записів=");
+    private static final byte[] APPOINTMENT = utf8("Прийом: ");
+    private static final byte[] WITH_DOCTOR = utf8(" у лікаря ");
+    private static final byte[] DATE = utf8("), дата: ");
+    private static final byte[] STATUS = utf8(", статус: ");
+    private static final byte[] NULL = utf8("null");
+    private static final byte[][] SPECIALTIES = new byte[MedicalSpecialty.values().length][];
+    private static final byte[][] STATUSES = new byte[Appointment.Status.values().length][];
+
+    static {
+        for (MedicalSpecialty specialty : MedicalSpecialty.values()) {
+            SPECIALTIES[specialty.ordinal()] = utf8(specialty.getUkrainianName());
+        }
+        for (Appointment.Status status : Appointment.Status.values()) {
+            STATUSES[status.ordinal()] = utf8(status.name());
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    public ReportRenderer(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public ReportRenderer(OutputStream out, int bufferSize) {
+        if (bufferSize < 32) {
+            throw new IllegalArgumentException("Buffer must hold at least 32 bytes");
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public ReportRenderer doctor(Doctor doctor) throws IOException {
+        bytes(DOCTOR_ID);
+        number(doctor.getId());
+        bytes(FIRST_NAME);
+        text(doctor.getFirstName());
+        bytes(LAST_NAME);
+        text(doctor.getLastName());
+        bytes(SPECIALTY);
+        specialty(doctor.getSpecialization());
+        bytes(WORKING_HOURS);
+        time(doctor.getWorkStart());
+        ascii(" - ");
+        time(doctor.getWorkEnd());
+        bytes(APPOINTMENT_COUNT);
+        number(doctor.schedule.size());
+        return ascii("}");
+    }
+
+    public ReportRenderer patient(Patient patient) throws IOException {
+        bytes(PATIENT_ID);
+        number(patient.getId());
+        bytes(FIRST_NAME);
+        text(patient.getFirstName());
+        bytes(LAST_NAME);
+        text(patient.getLastName());
+        bytes(DATE_OF_BIRTH);
+        date(patient.getDateOfBirth());
+        bytes(RECORD_COUNT);
+        number(patient.schedule.size());
+        return ascii("}");
+    }
+
+    public ReportRenderer appointment(Appointment appointment) throws IOException {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = appointment.getDoctor();
+        bytes(APPOINTMENT);
+        text(patient.getFirstName());
+        ascii(" ");
+        text(patient.getLastName());
+        bytes(WITH_DOCTOR);
+        text(doctor.getFirstName());
+        ascii(" ");
+        text(doctor.getLastName());
+        ascii(" (");
+        specialty(doctor.getSpecialization());
+        bytes(DATE);
+        date(appointment.getDate());
+        ascii(", ");
+        time(appointment.getStart());
+        ascii("-");
+        time(appointment.getEnd());
+        bytes(STATUS);
+        Appointment.Status status = appointment.getStatus();
+        return bytes(status == null ? NULL : STATUSES[status.ordinal()]);
+    }
+
+    /**
+     * Encodes {@code text} as UTF-8; {@code null} is written as {@code "null"}.
+     */
+    public ReportRenderer text(String text) throws IOException {
+        if (text == null) {
+            return bytes(NULL);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.length - position < 4) {
+                drain();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code text}, which must consist of ASCII characters only.
+     */
+    public ReportRenderer ascii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    public ReportRenderer newLine() throws IOException {
+        return ascii("\n");
+    }
+
+    /**
+     * Writes out everything rendered so far and flushes the stream.
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private ReportRenderer bytes(byte[] fragment) throws IOException {
+        if (fragment.length > buffer.length - position) {
+            drain();
+            if (fragment.length > buffer.length) {
+                out.write(fragment);
+                return this;
+            }
+        }
+        System.arraycopy(fragment, 0, buffer, position, fragment.length);
+        position += fragment.length;
+        return this;
+    }
+
+    private void specialty(MedicalSpecialty specialty) throws IOException {
+        bytes(specialty == null ? NULL : SPECIALTIES[specialty.ordinal()]);
+    }
+
+    private void number(Long value) throws IOException {
+        if (value == null) {
+            bytes(NULL);
+        } else {
+            number(value.longValue());
+        }
+    }
+
+    private void number(long value) throws IOException {
+        if (buffer.length - position < 20) {
+            drain();
+        }
+        if (value == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    /**
+     * Same text as {@link LocalDate#toString()}.
+     */
+    private void date(LocalDate date) throws IOException {
+        if (date == null) {
+            bytes(NULL);
+            return;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            ascii(date.toString());
+            return;
+        }
+        if (buffer.length - position < 10) {
+            drain();
+        }
+        digits(year, 4);
+        buffer[position++] = '-';
+        digits(date.getMonthValue(), 2);
+        buffer[position++] = '-';
+        digits(date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Same text as {@link LocalTime#toString()}.
+     */
+    private void time(LocalTime time) throws IOException {
+        if (time == null) {
+            bytes(NULL);
+            return;
+        }
+        if (buffer.length - position < 18) {
+            drain();
+        }
+        digits(time.getHour(), 2);
+        buffer[position++] = ':';
+        digits(time.getMinute(), 2);
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second > 0 || nano > 0) {
+            buffer[position++] = ':';
+            digits(second, 2);
+            if (nano > 0) {
+                buffer[position++] = '.';
+                if (nano % 1_000_000 == 0) {
+                    digits(nano / 1_000_000, 3);
+                } else if (nano % 1000 == 0) {
+                    digits(nano / 1000, 6);
+                } else {
+                    digits(nano, 9);
+                }
+            }
+        }
+    }
+
+    private void digits(int value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,448 @@
+package com.hospital.core;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+/**
+ * Chronologically ordered index of the appointments of a single {@link BusyHuman}.
+ * Live appointments are kept in an array sorted by date and start, with their epoch
+ * days in a parallel array, so that a day or a date range is found by binary search and
+ * counted without touching the appointments. Appointments of one owner never overlap,
+ * so within a day the entry with the latest start not after a candidate's end is the
+ * only one that can collide with it.
+ *
+ * <p>Lists handed out are read-only slices of the arrays. Since bookings mostly land
+ * after everything already booked, they are written in place; only a change below the
+ * end of a slice handed out copies the arrays, so that the slice keeps its contents.
+ *
+ * <p>The appointments may be supplied lazily and are then materialized on first use.
+ * Appointments before the cutoff of an {@link AppointmentArchive} live in the archive;
+ * the schedule keeps only the numbers of their rows, in chronological order.
+ */
+final class Schedule {
+    private static final int[] NO_ROWS = new int[0];
+    private static final Appointment[] NO_APPOINTMENTS = new Appointment[0];
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Appointment[] live = NO_APPOINTMENTS;
+    private int[] liveDays = NO_ROWS;
+    private int liveCount;
+    // Positions below this may be read through slices handed out since the last copy.
+    private int shared;
+    private AppointmentArchive archive;
+    private int[] archivedRows = NO_ROWS;
+    private final Occupancy occupancy = new Occupancy(LocalDate.now().toEpochDay());
+    private int size;
+    private volatile Supplier<List<Appointment>> loader;
+
+    synchronized void defer(int count, Supplier<List<Appointment>> loader) {
+        if (size != 0 || this.loader != null) {
+            throw new IllegalStateException("Appointments are already present");
+        }
+        this.loader = loader;
+        size = count;
+    }
+
+    synchronized boolean isFree(LocalDate date, LocalTime start, LocalTime end) {
+        ensureLoaded();
+        if (isArchived(date)) {
+            for (int i = firstArchivedOn(date.toEpochDay()); i < archivedRows.length
+                    && archive.epochDay(archivedRows[i]) == date.toEpochDay(); i++) {
+                Appointment archived = archive.view(archivedRows[i]);
+                if (!archived.getStart().isAfter(end) && !archived.getEnd().isBefore(start)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        long epochDay = date.toEpochDay();
+        int first = firstOn(epochDay);
+        int latest = firstStartingAfter(first, firstOn(epochDay + 1), end) - 1;
+        return latest < first || live[latest].getEnd().isBefore(start);
+    }
+
+    synchronized void add(Appointment appointment) {
+        ensureLoaded();
+        if (isArchived(appointment.getDate())) {
+            throw new IllegalStateException("Appointments before " + archive.getCutoff() + " are archived");
+        }
+        insert(appointment);
+    }
+
+    private void insert(Appointment appointment) {
+        appointment.markBooked();
+        int epochDay = Math.toIntExact(appointment.getDate().toEpochDay());
+        int at = firstStartingAfter(firstOn(epochDay), firstOn(epochDay + 1L), appointment.getStart());
+        if (at < shared || liveCount == live.length) {
+            int capacity = liveCount == live.length ? Math.max(INITIAL_CAPACITY, live.length * 2) : live.length;
+            Appointment[] copied = new Appointment[capacity];
+            int[] copiedDays = new int[capacity];
+            System.arraycopy(live, 0, copied, 0, at);
+            System.arraycopy(liveDays, 0, copiedDays, 0, at);
+            System.arraycopy(live, at, copied, at + 1, liveCount - at);
+            System.arraycopy(liveDays, at, copiedDays, at + 1, liveCount - at);
+            live = copied;
+            liveDays = copiedDays;
+            shared = 0;
+        } else {
+            System.arraycopy(live, at, live, at + 1, liveCount - at);
+            System.arraycopy(liveDays, at, liveDays, at + 1, liveCount - at);
+        }
+        live[at] = appointment;
+        liveDays[at] = epochDay;
+        liveCount++;
+        if (occupancy.tracks(epochDay)) {
+            occupancy.mark(epochDay, appointment.getStart(), appointment.getEnd());
+        }
+        size++;
+    }
+
+    synchronized boolean remove(Appointment appointment) {
+        ensureLoaded();
+        if (isArchived(appointment.getDate())) {
+            return removeArchived(appointment);
+        }
+        long epochDay = appointment.getDate().toEpochDay();
+        int first = firstOn(epochDay);
+        int last = firstOn(epochDay + 1);
+        int at = firstStartingAfter(first, last, appointment.getStart()) - 1;
+        if (at < first || !appointment.equals(live[at])) {
+            return false;
+        }
+        if (at < shared) {
+            Appointment[] copied = new Appointment[live.length];
+            int[] copiedDays = new int[live.length];
+            System.arraycopy(live, 0, copied, 0, at);
+            System.arraycopy(liveDays, 0, copiedDays, 0, at);
+            System.arraycopy(live, at + 1, copied, at, liveCount - at - 1);
+            System.arraycopy(liveDays, at + 1, copiedDays, at, liveCount - at - 1);
+            live = copied;
+            liveDays = copiedDays;
+            shared = 0;
+        } else {
+            System.arraycopy(live, at + 1, live, at, liveCount - at - 1);
+            System.arraycopy(liveDays, at + 1, liveDays, at, liveCount - at - 1);
+            live[liveCount - 1] = null;
+        }
+        liveCount--;
+        last--;
+        if (occupancy.tracks(epochDay)) {
+            occupancy.clear(epochDay);
+            for (int i = first; i < last; i++) {
+                occupancy.mark(epochDay, live[i].getStart(), live[i].getEnd());
+            }
+        }
+        size--;
+        return true;
+    }
+
+    private boolean removeArchived(Appointment appointment) {
+        long epochDay = appointment.getDate().toEpochDay();
+        for (int i = firstArchivedOn(epochDay); i < archivedRows.length
+                && archive.epochDay(archivedRows[i]) == epochDay; i++) {
+            if (appointment.equals(archive.view(archivedRows[i]))) {
+                archive.remove(archivedRows[i]);
+                int[] remaining = new int[archivedRows.length - 1];
+                System.arraycopy(archivedRows, 0, remaining, 0, i);
+                System.arraycopy(archivedRows, i + 1, remaining, i, remaining.length - i);
+                archivedRows = remaining;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isArchived(LocalDate date) {
+        return archive != null && date.isBefore(archive.getCutoff());
+    }
+
+    /**
+     * Position of the first archived row on or after {@code epochDay}.
+     */
+    private int firstArchivedOn(long epochDay) {
+        int low = 0;
+        int high = archivedRows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (archive.epochDay(archivedRows[middle]) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the appointments before {@code cutoff}, archived ones included, to {@code into}.
+     */
+    synchronized void collectBefore(LocalDate cutoff, Collection<Appointment> into) {
+        ensureLoaded();
+        for (int row : archivedRows) {
+            if (!archive.isRemoved(row)) {
+                into.add(archive.view(row));
+            }
+        }
+        into.addAll(Arrays.asList(live).subList(0, firstOn(cutoff.toEpochDay())));
+    }
+
+    /**
+     * Replaces the appointments before the cutoff of {@code next} with their rows in it.
+     * They must have been collected into it by {@link #collectBefore}.
+     */
+    synchronized void archive(AppointmentArchive next, Map<Appointment, Integer> rowOf) {
+        List<Appointment> moved = new ArrayList<>();
+        collectBefore(next.getCutoff(), moved);
+        int[] rows = new int[moved.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rowOf.get(moved.get(i));
+        }
+        Arrays.sort(rows);
+        int kept = firstOn(next.getCutoff().toEpochDay());
+        live = Arrays.copyOfRange(live, kept, Math.max(kept + INITIAL_CAPACITY, live.length));
+        liveDays = Arrays.copyOfRange(liveDays, kept, Math.max(kept + INITIAL_CAPACITY, liveDays.length));
+        liveCount -= kept;
+        shared = 0;
+        archive = next;
+        archivedRows = rows;
+        // Rows removed from the previous archive were not collected, so they are gone now.
+        size = rows.length + liveCount;
+    }
+
+    /**
+     * Number of appointments from {@code from} inclusive to {@code to} exclusive, found by
+     * binary searches over the archived rows and the epoch days of the live ones.
+     */
+    synchronized int count(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        return Math.max(0, firstArchivedOn(to.toEpochDay()) - firstArchivedOn(from.toEpochDay()))
+                + Math.max(0, firstOn(to.toEpochDay()) - firstOn(from.toEpochDay()));
+    }
+
+    /**
+     * Appointments from {@code from} inclusive to {@code to} exclusive, in chronological
+     * order, as a slice that later changes do not affect.
+     */
+    synchronized List<Appointment> between(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        int firstRow = firstArchivedOn(from.toEpochDay());
+        int first = firstOn(from.toEpochDay());
+        return slice(firstRow, Math.max(firstRow, firstArchivedOn(to.toEpochDay())),
+                first, Math.max(first, firstOn(to.toEpochDay())));
+    }
+
+    /**
+     * Position of the first live appointment on or after {@code epochDay}.
+     */
+    private int firstOn(long epochDay) {
+        int low = 0;
+        int high = liveCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (liveDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Position of the first live appointment from {@code low} up to {@code high}, all on
+     * the same day, that starts after {@code time}.
+     */
+    private int firstStartingAfter(int low, int high, LocalTime time) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (live[middle].getStart().isAfter(time)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Archived rows from {@code firstRow} up to {@code lastRow} followed by the live
+     * appointments from {@code first} up to {@code last}. The live positions are marked
+     * as shared, so that changing them later copies the arrays first.
+     */
+    private List<Appointment> slice(int firstRow, int lastRow, int first, int last) {
+        shared = Math.max(shared, last);
+        List<Appointment> liveSlice = Collections.unmodifiableList(Arrays.asList(live).subList(first, last));
+        if (firstRow == lastRow) {
+            return liveSlice;
+        }
+        return new ArchivedAndLive(archive, archivedRows, firstRow, lastRow - firstRow, liveSlice);
+    }
+
+    /**
+     * Occupancy bitmap of the given day, or {@code null} when nothing is booked on it.
+     * Days before the tracked range are rebuilt from the index on demand. Tracked days
+     * are read without locking, so callers must re-check a found slot before booking.
+     */
+    long[] occupancy(long epochDay) {
+        if (loader != null) {
+            load();
+        }
+        if (occupancy.tracks(epochDay)) {
+            return occupancy.day(epochDay);
+        }
+        return rebuildOccupancy(epochDay);
+    }
+
+    private synchronized long[] rebuildOccupancy(long epochDay) {
+        if (isArchived(LocalDate.ofEpochDay(epochDay))) {
+            int first = firstArchivedOn(epochDay);
+            if (first == archivedRows.length || archive.epochDay(archivedRows[first]) != epochDay) {
+                return null;
+            }
+            long[] words = new long[Occupancy.WORDS_PER_DAY];
+            for (int i = first; i < archivedRows.length && archive.epochDay(archivedRows[i]) == epochDay; i++) {
+                Occupancy.markRange(words, archive.startMinute(archivedRows[i]), archive.endMinute(archivedRows[i]));
+            }
+            return words;
+        }
+        int first = firstOn(epochDay);
+        int last = firstOn(epochDay + 1);
+        if (first == last) {
+            return null;
+        }
+        long[] words = new long[Occupancy.WORDS_PER_DAY];
+        for (int i = first; i < last; i++) {
+            Occupancy.markRange(words, Occupancy.floorMinute(live[i].getStart()),
+                    Occupancy.ceilMinute(live[i].getEnd()));
+        }
+        return words;
+    }
+
+    private synchronized void load() {
+        ensureLoaded();
+    }
+
+    private void ensureLoaded() {
+        Supplier<List<Appointment>> pending = loader;
+        if (pending == null) {
+            return;
+        }
+        List<Appointment> loaded = pending.get();
+        loader = null;
+        size = 0;
+        if (!fill(loaded)) {
+            for (Appointment appointment : loaded) {
+                insert(appointment);
+            }
+        }
+    }
+
+    /**
+     * Takes over {@code loaded} in a single pass if it is in chronological order, as
+     * snapshots store it; returns {@code false}, leaving the schedule empty, if it is not.
+     */
+    private boolean fill(List<Appointment> loaded) {
+        Appointment[] filled = new Appointment[Math.max(INITIAL_CAPACITY, loaded.size())];
+        int[] filledDays = new int[filled.length];
+        int count = 0;
+        for (Appointment appointment : loaded) {
+            int epochDay = Math.toIntExact(appointment.getDate().toEpochDay());
+            if (count > 0 && (epochDay < filledDays[count - 1] || (epochDay == filledDays[count - 1]
+                    && appointment.getStart().isBefore(filled[count - 1].getStart())))) {
+                return false;
+            }
+            filled[count] = appointment;
+            filledDays[count++] = epochDay;
+        }
+        live = filled;
+        liveDays = filledDays;
+        liveCount = count;
+        shared = 0;
+        size = count;
+        for (int i = 0; i < count; i++) {
+            filled[i].markBooked();
+            if (occupancy.tracks(filledDays[i])) {
+                occupancy.mark(filledDays[i], filled[i].getStart(), filled[i].getEnd());
+            }
+        }
+        return true;
+    }
+
+    boolean isDeferred() {
+        return loader != null;
+    }
+
+    /**
+     * The appointments that are not archived, in chronological order.
+     */
+    synchronized List<Appointment> live() {
+        ensureLoaded();
+        return slice(0, 0, 0, liveCount);
+    }
+
+    /**
+     * Rows in {@link #archive()} of the archived appointments, in chronological order.
+     * The array must not be modified.
+     */
+    synchronized int[] archivedRows() {
+        ensureLoaded();
+        return archivedRows;
+    }
+
+    synchronized AppointmentArchive archive() {
+        return archive;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized List<Appointment> asList() {
+        ensureLoaded();
+        return slice(0, archivedRows.length, 0, liveCount);
+    }
+
+    /**
+     * Archived appointments followed by the live ones, with the archived views created
+     * only when they are read. Arrays of archived rows are replaced, never changed, so
+     * the rows are shared rather than copied.
+     */
+    private static final class ArchivedAndLive extends AbstractList<Appointment> implements RandomAccess {
+        private final AppointmentArchive archive;
+        private final int[] rows;
+        private final int firstRow;
+        private final int rowCount;
+        private final List<Appointment> live;
+
+        ArchivedAndLive(AppointmentArchive archive, int[] rows, int firstRow, int rowCount, List<Appointment> live) {
+            this.archive = archive;
+            this.rows = rows;
+            this.firstRow = firstRow;
+            this.rowCount = rowCount;
+            this.live = live;
+        }
+
+        @Override
+        public Appointment get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return index < rowCount ? archive.view(rows[firstRow + index]) : live.get(index - rowCount);
+        }
+
+        @Override
+        public int size() {
+            return rowCount + live.size();
+        }
+    }
+}
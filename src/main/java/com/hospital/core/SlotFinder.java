@@ -0,0 +1,130 @@
+package com.hospital.core;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.LongSupplier;
+
+import com.hospital.core.Appointment.Status;
+
+/**
+ * Nearest common free slot search over the occupancy bitmaps of a doctor and a patient.
+ * Candidate starts are aligned to {@code slotMinutes} from the start of the working day;
+ * a busy candidate is skipped past the whole run of busy minutes at once, so the cost
+ * depends on the number of gaps rather than on the slot size.
+ * Slots are encoded as {@code epochDay * MINUTES_PER_DAY + minuteOfDay} so that the
+ * search itself allocates nothing.
+ */
+final class SlotFinder {
+    static final long NO_SLOT = -1L;
+
+    private static final LongSupplier UNBOUNDED = () -> Long.MAX_VALUE;
+
+    private SlotFinder() {
+    }
+
+    /**
+     * Earliest slot from {@code from} on that is free for both; with a {@code null}
+     * patient, the earliest slot free in the doctor's own schedule.
+     */
+    static long findNearest(Doctor doctor, Patient patient, LocalDate from,
+            int slotMinutes, int visitMinutes) {
+        return findNearest(doctor, patient, from, slotMinutes, visitMinutes, UNBOUNDED);
+    }
+
+    /**
+     * Like {@link #findNearest(Doctor, Patient, LocalDate, int, int)}, but gives up with
+     * {@link #NO_SLOT} as soon as every remaining slot is later than {@code limit}. The
+     * limit is re-read once per day, so it may be lowered while the search runs.
+     * Days off in the doctor's {@link WorkingCalendar} are skipped without being looked at;
+     * if the working hours are too short for a visit or the calendar has no working day
+     * left, {@link #NO_SLOT} is returned at once.
+     */
+    static long findNearest(Doctor doctor, Patient patient, LocalDate from,
+            int slotMinutes, int visitMinutes, LongSupplier limit) {
+        int firstStart = Occupancy.ceilMinute(doctor.getWorkStart());
+        int lastEnd = Occupancy.floorMinute(doctor.getWorkEnd());
+        if (firstStart + visitMinutes > lastEnd) {
+            return NO_SLOT;
+        }
+        WorkingCalendar calendar = calendarOf(doctor);
+
+        for (long epochDay = from.toEpochDay();; epochDay++) {
+            epochDay = calendar.nextWorkingDay(epochDay);
+            if (epochDay == WorkingCalendar.NO_DAY) {
+                return NO_SLOT;
+            }
+            long dayStart = epochDay * Occupancy.MINUTES_PER_DAY;
+            long bound = limit.getAsLong();
+            if (dayStart + firstStart > bound) {
+                return NO_SLOT;
+            }
+            long[] doctorDay = doctor.schedule.occupancy(epochDay);
+            long[] patientDay = patient == null ? null : patient.schedule.occupancy(epochDay);
+
+            int start = firstStart;
+            while (start + visitMinutes <= lastEnd) {
+                int busy = Occupancy.firstBusyMinute(doctorDay, patientDay, start, start + visitMinutes);
+                if (busy < 0) {
+                    return dayStart + start <= bound ? dayStart + start : NO_SLOT;
+                }
+                // Every start before the end of the busy run would include a busy minute.
+                int free = Occupancy.firstFreeMinute(doctorDay, patientDay, busy);
+                start = firstStart + (free - firstStart + slotMinutes - 1) / slotMinutes * slotMinutes;
+            }
+        }
+    }
+
+    static WorkingCalendar calendarOf(Doctor doctor) {
+        WorkingCalendar calendar = doctor.getWorkingCalendar();
+        return calendar == null ? WorkingCalendar.EVERY_DAY : calendar;
+    }
+
+    static LocalDate dateOf(long slot) {
+        return LocalDate.ofEpochDay(slot / Occupancy.MINUTES_PER_DAY);
+    }
+
+    static LocalTime timeOf(long slot) {
+        int minute = (int) (slot % Occupancy.MINUTES_PER_DAY);
+        return LocalTime.of(minute / 60, minute % 60);
+    }
+
+    /**
+     * Original slot-by-slot probing search, kept as the reference the bitmap engine is
+     * tested against. Returns the candidate appointment without booking it.
+     */
+    static Appointment probeNearest(Doctor doctor, Patient patient, LocalDate from) {
+        return probeNearest(doctor, patient, from, 30, 30);
+    }
+
+    static Appointment probeNearest(Doctor doctor, Patient patient, LocalDate from,
+            int slotMinutes, int visitMinutes) {
+        LocalDate date = from;
+        Duration duration = Duration.ofMinutes(visitMinutes);
+        LocalTime start = doctor.getWorkStart();
+
+        while (true) {
+            while (!calendarOf(doctor).isWorkingDay(date)) {
+                date = date.plusDays(1);
+            }
+            while (start.plus(duration).compareTo(doctor.getWorkEnd()) <= 0
+                    && !start.plus(duration).isBefore(start)) {
+                LocalTime end = start.plus(duration);
+                Appointment candidate = new Appointment(doctor, patient, date, start, end, Status.ACTIVE);
+
+                if (doctor.canAcceptAppointment(candidate) && patient.canAcceptAppointment(candidate)) {
+                    return candidate;
+                }
+
+                LocalTime next = start.plusMinutes(slotMinutes);
+                if (next.isBefore(start)) {
+                    break;
+                }
+                start = next;
+            }
+
+            date = date.plusDays(1);
+            start = doctor.getWorkStart();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.hospital.core;
+
+/**
+ * Booking grid of a doctor: visits start every {@code slotMinutes} from the beginning of
+ * the working day and last {@code visitMinutes}. A visit cannot start at the minute the
+ * previous one ends, so back-to-back visits of 10 minutes on a 5-minute grid start
+ * every 15 minutes. A grid is filled when visits are one minute shorter than slots.
+ */
+public final class SlotPolicy {
+    /** Half-hour slots, each taken by a 29-minute visit so that every slot can be booked. */
+    public static final SlotPolicy DEFAULT = new SlotPolicy(30, 29);
+
+    private final int slotMinutes;
+    private final int visitMinutes;
+
+    public SlotPolicy(int slotMinutes, int visitMinutes) {
+        if (slotMinutes <= 0 || slotMinutes > Occupancy.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Slot length must be between 1 and 1440 minutes");
+        }
+        if (visitMinutes <= 0 || visitMinutes >= Occupancy.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Visit length must be between 1 and 1439 minutes");
+        }
+        this.slotMinutes = slotMinutes;
+        this.visitMinutes = visitMinutes;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getVisitMinutes() {
+        return visitMinutes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof SlotPolicy))
+            return false;
+        SlotPolicy that = (SlotPolicy) o;
+        return slotMinutes == that.slotMinutes && visitMinutes == that.visitMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * slotMinutes + visitMinutes;
+    }
+
+    @Override
+    public String toString() {
+        return slotMinutes + "/" + visitMinutes + " хв";
+    }
+}
@@ -0,0 +1,54 @@
+package com.hospital.core;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared by doctors and patients. Pairs are always acquired in
+ * ascending stripe order, so two bookings can never wait on each other.
+ */
+final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    StripedLocks(int minimumStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    int stripeOf(Doctor doctor) {
+        return stripe(doctor.getId() * 2);
+    }
+
+    int stripeOf(Patient patient) {
+        return stripe(patient.getId() * 2 + 1);
+    }
+
+    void lock(int stripe) {
+        locks[stripe].lock();
+    }
+
+    void unlock(int stripe) {
+        locks[stripe].unlock();
+    }
+
+    void lockPair(int first, int second) {
+        locks[Math.min(first, second)].lock();
+        if (first != second) {
+            locks[Math.max(first, second)].lock();
+        }
+    }
+
+    void unlockPair(int first, int second) {
+        if (first != second) {
+            locks[Math.max(first, second)].unlock();
+        }
+        locks[Math.min(first, second)].unlock();
+    }
+
+    private int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (locks.length - 1);
+    }
+}
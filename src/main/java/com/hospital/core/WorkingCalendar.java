@@ -0,0 +1,194 @@
+package com.hospital.core;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Days on which a doctor sees patients: working weekdays minus holidays and vacations.
+ * Instances are immutable; the {@code with...} methods return modified copies, so a
+ * calendar can be shared by several doctors and read without locking.
+ *
+ * <p>{@link #nextWorkingDay(long)} skips each holiday or non-working weekday in constant
+ * time and a whole vacation at once.
+ */
+public final class WorkingCalendar {
+    public static final WorkingCalendar EVERY_DAY = new WorkingCalendar(EnumSet.allOf(DayOfWeek.class));
+
+    static final long NO_DAY = Long.MAX_VALUE;
+
+    private final int weekdayMask;
+    private final long firstHoliday;
+    private final BitSet holidays;
+    private final long[] vacationStarts;
+    private final long[] vacationEnds;
+
+    public WorkingCalendar(Set<DayOfWeek> weekdays) {
+        this(maskOf(weekdays), 0, new BitSet(), new long[0], new long[0]);
+    }
+
+    private WorkingCalendar(int weekdayMask, long firstHoliday, BitSet holidays,
+            long[] vacationStarts, long[] vacationEnds) {
+        this.weekdayMask = weekdayMask;
+        this.firstHoliday = firstHoliday;
+        this.holidays = holidays;
+        this.vacationStarts = vacationStarts;
+        this.vacationEnds = vacationEnds;
+    }
+
+    public WorkingCalendar withHolidays(Collection<LocalDate> dates) {
+        List<LocalDate> all = new ArrayList<>(getHolidays());
+        all.addAll(dates);
+        if (all.isEmpty()) {
+            return this;
+        }
+        long first = Collections.min(all).toEpochDay();
+        BitSet bits = new BitSet();
+        for (LocalDate date : all) {
+            bits.set(Math.toIntExact(date.toEpochDay() - first));
+        }
+        return new WorkingCalendar(weekdayMask, first, bits, vacationStarts, vacationEnds);
+    }
+
+    /**
+     * Adds a vacation from {@code from} to {@code to}, both inclusive. Overlapping and
+     * adjacent vacations are merged.
+     */
+    public WorkingCalendar withVacation(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Passing null arguments to function is forbidden");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Vacation ends before it starts");
+        }
+        long[][] ranges = new long[vacationStarts.length + 1][];
+        for (int i = 0; i < vacationStarts.length; i++) {
+            ranges[i] = new long[] { vacationStarts[i], vacationEnds[i] };
+        }
+        ranges[vacationStarts.length] = new long[] { from.toEpochDay(), to.toEpochDay() };
+        Arrays.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] starts = new long[ranges.length];
+        long[] ends = new long[ranges.length];
+        int count = 0;
+        for (long[] range : ranges) {
+            if (count > 0 && range[0] <= ends[count - 1] + 1) {
+                ends[count - 1] = Math.max(ends[count - 1], range[1]);
+            } else {
+                starts[count] = range[0];
+                ends[count] = range[1];
+                count++;
+            }
+        }
+        return new WorkingCalendar(weekdayMask, firstHoliday, holidays,
+                Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    public Set<DayOfWeek> getWeekdays() {
+        Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((weekdayMask & (1 << day.ordinal())) != 0) {
+                weekdays.add(day);
+            }
+        }
+        return weekdays;
+    }
+
+    public List<LocalDate> getHolidays() {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = holidays.nextSetBit(0); i >= 0; i = holidays.nextSetBit(i + 1)) {
+            dates.add(LocalDate.ofEpochDay(firstHoliday + i));
+        }
+        return dates;
+    }
+
+    /**
+     * Vacations in chronological order, each as a {@code [first day, last day]} pair.
+     */
+    public List<LocalDate[]> getVacations() {
+        List<LocalDate[]> vacations = new ArrayList<>(vacationStarts.length);
+        for (int i = 0; i < vacationStarts.length; i++) {
+            vacations.add(new LocalDate[] { LocalDate.ofEpochDay(vacationStarts[i]),
+                    LocalDate.ofEpochDay(vacationEnds[i]) });
+        }
+        return vacations;
+    }
+
+    public boolean isWorkingDay(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        return nextWorkingDay(epochDay) == epochDay;
+    }
+
+    /**
+     * First working day on or after {@code epochDay}, or {@link #NO_DAY} if there is none.
+     */
+    long nextWorkingDay(long epochDay) {
+        if (weekdayMask == 0) {
+            return NO_DAY;
+        }
+        long day = epochDay;
+        while (true) {
+            int vacation = Arrays.binarySearch(vacationStarts, day);
+            if (vacation < 0) {
+                vacation = -vacation - 2;
+            }
+            if (vacation >= 0 && vacationEnds[vacation] >= day) {
+                day = vacationEnds[vacation] + 1;
+                continue;
+            }
+            long holiday = day - firstHoliday;
+            if (holiday >= 0 && holiday < holidays.length() && holidays.get((int) holiday)) {
+                day++;
+                continue;
+            }
+            // 1970-01-01, epoch day 0, was a Thursday.
+            int weekday = (int) Math.floorMod(day + 3, 7L);
+            if ((weekdayMask & (1 << weekday)) == 0) {
+                day += Integer.numberOfTrailingZeros(rotatedMask(weekday));
+                continue;
+            }
+            return day;
+        }
+    }
+
+    /**
+     * Working weekdays as a 7-bit mask whose lowest bit is {@code weekday}.
+     */
+    private int rotatedMask(int weekday) {
+        return ((weekdayMask >>> weekday) | (weekdayMask << (7 - weekday))) & 0x7F;
+    }
+
+    private static int maskOf(Set<DayOfWeek> weekdays) {
+        int mask = 0;
+        for (DayOfWeek day : weekdays) {
+            mask |= 1 << day.ordinal();
+        }
+        return mask;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof WorkingCalendar))
+            return false;
+        WorkingCalendar that = (WorkingCalendar) o;
+        return weekdayMask == that.weekdayMask
+                && getHolidays().equals(that.getHolidays())
+                && Arrays.equals(vacationStarts, that.vacationStarts)
+                && Arrays.equals(vacationEnds, that.vacationEnds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(weekdayMask, getHolidays(), Arrays.hashCode(vacationStarts), Arrays.hashCode(vacationEnds));
+    }
+}
@@ -0,0 +1,103 @@
+package com.hospital.io.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.hospital.core.Hospital;
+
+/**
+ * Periodically writes a binary snapshot of a live {@link Hospital} without stopping it.
+ *
+ * <p>Nothing is locked beyond the brief per-schedule locks taken to read each doctor's
+ * appointments, so the file is a fuzzy image: every booking is either fully in it or fully
+ * absent, but bookings and edits made while it is written may or may not be included.
+ * That is why a journal is required: it is rotated before the write starts, and replaying
+ * it on top of the snapshot recovers exactly the latest state. The snapshot is written to
+ * a temporary file and atomically moved over the previous one, so a crash never leaves a
+ * torn snapshot behind.
+ */
+public final class BackgroundSnapshotter implements Closeable {
+    private final Hospital hospital;
+    private final Path target;
+    private final WriteAheadJournal journal;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hospital-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile IOException lastFailure;
+
+    /**
+     * @param journal the journal attached to {@code hospital} as its mutation listener
+     */
+    public BackgroundSnapshotter(Hospital hospital, Path target, WriteAheadJournal journal) {
+        this.hospital = Objects.requireNonNull(hospital, "hospital");
+        this.target = Objects.requireNonNull(target, "target");
+        this.journal = Objects.requireNonNull(journal, "journal");
+    }
+
+    public void start(Duration interval) {
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+                lastFailure = null;
+            } catch (IOException e) {
+                lastFailure = e;
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot now, on the calling thread.
+     */
+    public synchronized void snapshot() throws IOException {
+        journal.beginCheckpoint();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            BinarySnapshot.write(hospital, out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journal.completeCheckpoint();
+    }
+
+    /**
+     * Failure of the last scheduled snapshot, or {@code null} if it succeeded.
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops scheduling snapshots and waits for one in progress to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package com.hospital.io.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.AppointmentArchive;
+import com.hospital.core.Doctor;
+import com.hospital.core.Hospital;
+import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.Patient;
+import com.hospital.core.SlotPolicy;
+import com.hospital.core.WorkingCalendar;
+
+/**
+ * Compact binary snapshot of a {@link Hospital}.
+ *
+ * <pre>
+ * magic "HSNP", varint version
+ * string dictionary      varint count, UTF-8 strings
+ * specialty dictionary   varint count, enum names
+ * status dictionary      varint count, enum names
+ * settings               varint count of specialty slot policies, per policy: specialty
+ *                        ref, slot minutes and visit minutes; archive cutoff epoch day
+ *                        (absent if nothing was archived)
+ * appointment blocks     per doctor, per appointment: patient id, epoch day delta,
+ *                        start time, length in minutes or end time, status ref
+ * patient references     per patient, per appointment: doctor id, epoch day delta, start time
+ * doctor table           varint count, per doctor: id, name refs, specialty ref, work start/end
+ *                        time, slot minutes (0 if none) and visit minutes,
+ *                        working calendar, appointment count, offset of its block
+ * working calendar       weekday bit mask (absent if the doctor has no calendar), holiday
+ *                        count and epoch day deltas, vacation count and per vacation the
+ *                        epoch day delta of its first day and its length in days
+ * patient table          varint count, per patient: id, name refs, birth epoch day,
+ *                        appointment count, offset of its references
+ * trailer                fixed 64-bit offsets of the doctor and patient tables, magic
+ * </pre>
+ *
+ * Optional values are stored shifted by one so that zero encodes {@code null}. A time is
+ * stored as its minute of day, or if it has seconds as 1440 plus its nano of day. The
+ * length of an appointment is stored in minutes when both its times are whole minutes,
+ * and otherwise as 1440 plus the nano of day of its end.
+ */
+public final class BinarySnapshot {
+    static final byte[] MAGIC = { 'H', 'S', 'N', 'P' };
+    static final int VERSION = 1;
+
+    private static final int TRAILER_SIZE = 2 * Long.BYTES + MAGIC.length;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final Comparator<Appointment> CHRONOLOGICAL = Comparator.comparing(Appointment::getDate)
+            .thenComparing(Appointment::getStart);
+    private static final LocalTime[] TIMES = new LocalTime[MINUTES_PER_DAY];
+
+    static {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            TIMES[minute] = LocalTime.of(minute / 60, minute % 60);
+        }
+    }
+
+    private BinarySnapshot() {
+    }
+
+    public static void write(Hospital hospital, OutputStream stream) throws IOException {
+        List<Patient> patients = new ArrayList<>(hospital.getAllPatients());
+        List<Doctor> doctors = new ArrayList<>(hospital.getAllDoctors());
+
+        // Names are read once so that a rename during the write cannot miss the dictionary.
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        String[] patientNames = new String[2 * patients.size()];
+        Set<Long> patientIds = new HashSet<>();
+        for (int i = 0; i < patients.size(); i++) {
+            patientNames[2 * i] = intern(strings, patients.get(i).getFirstName());
+            patientNames[2 * i + 1] = intern(strings, patients.get(i).getLastName());
+            patientIds.add(patients.get(i).getId());
+        }
+        String[] doctorNames = new String[2 * doctors.size()];
+        for (int i = 0; i < doctors.size(); i++) {
+            doctorNames[2 * i] = intern(strings, doctors.get(i).getFirstName());
+            doctorNames[2 * i + 1] = intern(strings, doctors.get(i).getLastName());
+        }
+
+        SnapshotOutput out = new SnapshotOutput(stream);
+        out.writeBytes(MAGIC);
+        out.writeVarLong(VERSION);
+
+        out.writeVarLong(strings.size());
+        for (String value : strings.keySet()) {
+            out.writeString(value);
+        }
+        writeNames(out, MedicalSpecialty.values());
+        writeNames(out, Appointment.Status.values());
+        writeSettings(out, hospital);
+
+        // Patient references are taken from the blocks actually written, so the file stays
+        // consistent when appointments are booked while it is being written.
+        Map<Long, List<Appointment>> byPatient = new HashMap<>();
+        int[] doctorCounts = new int[doctors.size()];
+        long[] doctorBlocks = new long[doctors.size()];
+        for (int i = 0; i < doctors.size(); i++) {
+            doctorBlocks[i] = out.position();
+            long previousDay = 0;
+            for (Appointment appointment : doctors.get(i).getAppointments()) {
+                if (!patientIds.contains(appointment.getPatient().getId())) {
+                    continue;
+                }
+                byPatient.computeIfAbsent(appointment.getPatient().getId(), id -> new ArrayList<>()).add(appointment);
+                doctorCounts[i]++;
+                long epochDay = appointment.getDate().toEpochDay();
+                long start = timeCode(appointment.getStart());
+                long end = timeCode(appointment.getEnd());
+                Appointment.Status status = appointment.getStatus();
+                out.writeVarLong(requireId(appointment.getPatient().getId()));
+                out.writeSignedVarLong(epochDay - previousDay);
+                out.writeVarLong(start);
+                out.writeSignedVarLong(start < MINUTES_PER_DAY && end < MINUTES_PER_DAY ? end - start
+                        : MINUTES_PER_DAY + appointment.getEnd().toNanoOfDay());
+                out.writeVarLong(status == null ? 0 : status.ordinal() + 1);
+                previousDay = epochDay;
+            }
+        }
+
+        int[] patientCounts = new int[patients.size()];
+        long[] patientReferences = new long[patients.size()];
+        for (int i = 0; i < patients.size(); i++) {
+            List<Appointment> appointments = byPatient.getOrDefault(patients.get(i).getId(), Collections.emptyList());
+            appointments.sort(CHRONOLOGICAL);
+            patientCounts[i] = appointments.size();
+            patientReferences[i] = out.position();
+            long previousDay = 0;
+            for (Appointment appointment : appointments) {
+                long epochDay = appointment.getDate().toEpochDay();
+                out.writeVarLong(requireId(appointment.getDoctor().getId()));
+                out.writeSignedVarLong(epochDay - previousDay);
+                out.writeVarLong(timeCode(appointment.getStart()));
+                previousDay = epochDay;
+            }
+        }
+
+        long doctorTable = out.position();
+        out.writeVarLong(doctors.size());
+        for (int i = 0; i < doctors.size(); i++) {
+            Doctor doctor = doctors.get(i);
+            out.writeVarLong(requireId(doctor.getId()));
+            writeRef(out, strings, doctorNames[2 * i]);
+            writeRef(out, strings, doctorNames[2 * i + 1]);
+            out.writeVarLong(doctor.getSpecialization() == null ? 0 : doctor.getSpecialization().ordinal() + 1);
+            out.writeVarLong(doctor.getWorkStart() == null ? 0 : timeCode(doctor.getWorkStart()) + 1);
+            out.writeVarLong(doctor.getWorkEnd() == null ? 0 : timeCode(doctor.getWorkEnd()) + 1);
+            SlotPolicy policy = doctor.getSlotPolicy();
+            out.writeVarLong(policy == null ? 0 : policy.getSlotMinutes());
+            if (policy != null) {
+                out.writeVarLong(policy.getVisitMinutes());
+            }
+            writeCalendar(out, doctor.getWorkingCalendar());
+            out.writeVarLong(doctorCounts[i]);
+            out.writeVarLong(doctorBlocks[i]);
+        }
+
+        long patientTable = out.position();
+        out.writeVarLong(patients.size());
+        for (int i = 0; i < patients.size(); i++) {
+            Patient patient = patients.get(i);
+            out.writeVarLong(requireId(patient.getId()));
+            writeRef(out, strings, patientNames[2 * i]);
+            writeRef(out, strings, patientNames[2 * i + 1]);
+            out.writeVarLong(patient.getDateOfBirth() == null ? 0
+                    : zigzag(patient.getDateOfBirth().toEpochDay()) + 1);
+            out.writeVarLong(patientCounts[i]);
+            out.writeVarLong(patientReferences[i]);
+        }
+
+        out.writeFixedLong(doctorTable);
+        out.writeFixedLong(patientTable);
+        out.writeBytes(MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot, decoding every appointment. The rows were validated when their
+     * schedules took them before the snapshot was written, so they are not checked again
+     * one by one: each doctor's block is handed to its schedule as it is, in chronological
+     * order, and each patient gets the same objects sorted the same way. A schedule takes
+     * its list over in one pass when it is first used.
+     */
+    public static Hospital read(ByteBuffer buffer) throws IOException {
+        SnapshotInput in = new SnapshotInput(buffer);
+        readHeader(in);
+        Dictionaries dictionaries = new Dictionaries(in);
+        Hospital hospital = new Hospital();
+        LocalDate cutoff = readSettings(in, dictionaries, hospital);
+
+        Trailer trailer = new Trailer(buffer);
+        in.position(trailer.patientTable);
+        int patientCount = in.readVarInt();
+        Map<Long, Patient> patients = new HashMap<>();
+        Map<Patient, List<Appointment>> byPatient = new HashMap<>();
+        for (int i = 0; i < patientCount; i++) {
+            Patient patient = readPatient(in, dictionaries);
+            byPatient.put(patient, new ArrayList<>(in.readVarInt()));
+            in.readVarLong();
+            hospital.addPatient(patient);
+            patients.put(patient.getId(), patient);
+        }
+
+        in.position(trailer.doctorTable);
+        int doctorCount = in.readVarInt();
+        for (int i = 0; i < doctorCount; i++) {
+            Doctor doctor = readDoctor(in, dictionaries);
+            hospital.addDoctor(doctor);
+            int count = in.readVarInt();
+            SnapshotInput block = new SnapshotInput(buffer.duplicate());
+            block.position(checkedOffset(buffer, in.readVarLong()));
+            List<Appointment> appointments = readBlock(block, count, doctor, dictionaries,
+                    id -> Optional.ofNullable(patients.get(id)));
+            for (Appointment appointment : appointments) {
+                byPatient.get(appointment.getPatient()).add(appointment);
+            }
+            doctor.deferAppointments(count, () -> appointments);
+        }
+
+        for (Map.Entry<Patient, List<Appointment>> entry : byPatient.entrySet()) {
+            List<Appointment> appointments = entry.getValue();
+            appointments.sort(CHRONOLOGICAL);
+            entry.getKey().deferAppointments(appointments.size(), () -> appointments);
+        }
+        if (cutoff != null) {
+            hospital.archiveAppointmentsBefore(cutoff);
+        }
+        return hospital;
+    }
+
+    /**
+     * Reads the doctors and patients of a snapshot and leaves their appointments
+     * in {@code buffer}, to be decoded the first time each doctor's or patient's schedule is
+     * used. A patient's appointments are the ones materialized for its doctors, so both
+     * sides share the same objects. {@code buffer} must stay valid and unchanged for as long
+     * as the hospital is in use. If the snapshot was taken after appointments were
+     * archived, archiving them again decodes every doctor's schedule right away.
+     */
+    public static Hospital readLazily(ByteBuffer buffer) throws IOException {
+        SnapshotInput in = new SnapshotInput(buffer.duplicate());
+        readHeader(in);
+        Dictionaries dictionaries = new Dictionaries(in);
+        Trailer trailer = new Trailer(buffer);
+        Hospital hospital = new Hospital();
+        LocalDate cutoff = readSettings(in, dictionaries, hospital);
+
+        Map<Long, Patient> patients = new HashMap<>();
+        in.position(trailer.patientTable);
+        int patientCount = in.readVarInt();
+        List<Patient> deferred = new ArrayList<>();
+        List<long[]> references = new ArrayList<>();
+        for (int i = 0; i < patientCount; i++) {
+            Patient patient = readPatient(in, dictionaries);
+            int count = in.readVarInt();
+            long offset = checkedOffset(buffer, in.readVarLong());
+            hospital.addPatient(patient);
+            patients.put(patient.getId(), patient);
+            deferred.add(patient);
+            references.add(new long[] { count, offset });
+        }
+
+        Map<Long, Doctor> doctors = new HashMap<>();
+        in.position(trailer.doctorTable);
+        int doctorCount = in.readVarInt();
+        for (int i = 0; i < doctorCount; i++) {
+            Doctor doctor = readDoctor(in, dictionaries);
+            int count = in.readVarInt();
+            int offset = checkedOffset(buffer, in.readVarLong());
+            hospital.addDoctor(doctor);
+            doctors.put(doctor.getId(), doctor);
+            doctor.deferAppointments(count, () -> {
+                SnapshotInput block = new SnapshotInput(buffer.duplicate());
+                block.position(offset);
+                try {
+                    return readBlock(block, count, doctor, dictionaries,
+                            id -> Optional.ofNullable(patients.get(id)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        for (int i = 0; i < deferred.size(); i++) {
+            Patient patient = deferred.get(i);
+            int count = (int) references.get(i)[0];
+            int offset = (int) references.get(i)[1];
+            patient.deferAppointments(count, () -> {
+                SnapshotInput refs = new SnapshotInput(buffer.duplicate());
+                refs.position(offset);
+                try {
+                    return readReferences(refs, count, doctors);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        if (cutoff != null) {
+            hospital.archiveAppointmentsBefore(cutoff);
+        }
+        return hospital;
+    }
+
+    private static void readHeader(SnapshotInput in) throws IOException {
+        for (byte expected : MAGIC) {
+            if (in.readByte() != (expected & 0xFF)) {
+                throw new IOException("Not a hospital snapshot");
+            }
+        }
+        int version = in.readVarInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+    }
+
+    private static void writeSettings(SnapshotOutput out, Hospital hospital) throws IOException {
+        Map<MedicalSpecialty, SlotPolicy> policies = hospital.getSpecialtySlotPolicies();
+        out.writeVarLong(policies.size());
+        for (Map.Entry<MedicalSpecialty, SlotPolicy> entry : policies.entrySet()) {
+            out.writeVarLong(entry.getKey().ordinal());
+            out.writeVarLong(entry.getValue().getSlotMinutes());
+            out.writeVarLong(entry.getValue().getVisitMinutes());
+        }
+        AppointmentArchive archive = hospital.getArchive();
+        out.writeVarLong(archive == null ? 0 : zigzag(archive.getCutoff().toEpochDay()) + 1);
+    }
+
+    /**
+     * Sets the specialty slot policies on {@code hospital} and returns the archive
+     * cutoff, which is applied once the appointments are in place.
+     */
+    private static LocalDate readSettings(SnapshotInput in, Dictionaries dictionaries, Hospital hospital)
+            throws IOException {
+        int policyCount = in.readVarInt();
+        for (int i = 0; i < policyCount; i++) {
+            MedicalSpecialty specialty = lookup(dictionaries.specialties, in.readVarInt());
+            int slotMinutes = in.readVarInt();
+            int visitMinutes = in.readVarInt();
+            try {
+                hospital.setSlotPolicy(specialty, new SlotPolicy(slotMinutes, visitMinutes));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid slot policy in snapshot", e);
+            }
+        }
+        long cutoff = in.readVarLong();
+        return cutoff == 0 ? null : LocalDate.ofEpochDay(unzigzag(cutoff - 1));
+    }
+
+    private static Patient readPatient(SnapshotInput in, Dictionaries dictionaries) throws IOException {
+        long id = in.readVarLong();
+        String firstName = dictionaries.string(in.readVarInt());
+        String lastName = dictionaries.string(in.readVarInt());
+        long dateOfBirth = in.readVarLong();
+        return new Patient(id, firstName, lastName,
+                dateOfBirth == 0 ? null : LocalDate.ofEpochDay(unzigzag(dateOfBirth - 1)));
+    }
+
+    private static Doctor readDoctor(SnapshotInput in, Dictionaries dictionaries) throws IOException {
+        long id = in.readVarLong();
+        String firstName = dictionaries.string(in.readVarInt());
+        String lastName = dictionaries.string(in.readVarInt());
+        int specialty = in.readVarInt();
+        long workStart = in.readVarLong();
+        long workEnd = in.readVarLong();
+        Doctor doctor = new Doctor(id, firstName, lastName,
+                specialty == 0 ? null : lookup(dictionaries.specialties, specialty - 1),
+                workStart == 0 ? null : timeOf(workStart - 1),
+                workEnd == 0 ? null : timeOf(workEnd - 1));
+        int slotMinutes = in.readVarInt();
+        if (slotMinutes != 0) {
+            int visitMinutes = in.readVarInt();
+            try {
+                doctor.setSlotPolicy(new SlotPolicy(slotMinutes, visitMinutes));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid slot policy in snapshot", e);
+            }
+        }
+        doctor.setWorkingCalendar(readCalendar(in));
+        return doctor;
+    }
+
+    static void writeCalendar(SnapshotOutput out, WorkingCalendar calendar) throws IOException {
+        if (calendar == null) {
+            out.writeVarLong(0);
+            return;
+        }
+        int mask = 0;
+        for (DayOfWeek day : calendar.getWeekdays()) {
+            mask |= 1 << day.ordinal();
+        }
+        out.writeVarLong(mask + 1);
+
+        List<LocalDate> holidays = calendar.getHolidays();
+        out.writeVarLong(holidays.size());
+        long previousDay = 0;
+        for (LocalDate holiday : holidays) {
+            out.writeVarLong(zigzag(holiday.toEpochDay() - previousDay));
+            previousDay = holiday.toEpochDay();
+        }
+
+        List<LocalDate[]> vacations = calendar.getVacations();
+        out.writeVarLong(vacations.size());
+        previousDay = 0;
+        for (LocalDate[] vacation : vacations) {
+            out.writeVarLong(zigzag(vacation[0].toEpochDay() - previousDay));
+            out.writeVarLong(vacation[1].toEpochDay() - vacation[0].toEpochDay());
+            previousDay = vacation[0].toEpochDay();
+        }
+    }
+
+    static WorkingCalendar readCalendar(SnapshotInput in) throws IOException {
+        int mask = in.readVarInt();
+        if (mask == 0) {
+            return null;
+        }
+        Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (((mask - 1) & (1 << day.ordinal())) != 0) {
+                weekdays.add(day);
+            }
+        }
+
+        int holidayCount = in.readVarInt();
+        List<LocalDate> holidays = new ArrayList<>(holidayCount);
+        long day = 0;
+        for (int i = 0; i < holidayCount; i++) {
+            day += unzigzag(in.readVarLong());
+            holidays.add(LocalDate.ofEpochDay(day));
+        }
+
+        try {
+            WorkingCalendar calendar = new WorkingCalendar(weekdays).withHolidays(holidays);
+            int vacationCount = in.readVarInt();
+            day = 0;
+            for (int i = 0; i < vacationCount; i++) {
+                day += unzigzag(in.readVarLong());
+                long length = in.readVarLong();
+                calendar = calendar.withVacation(LocalDate.ofEpochDay(day), LocalDate.ofEpochDay(day + length));
+            }
+            return calendar;
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid working calendar in snapshot", e);
+        }
+    }
+
+    private interface PatientLookup {
+        Optional<Patient> find(long id);
+    }
+
+    private static List<Appointment> readBlock(SnapshotInput in, int count, Doctor doctor,
+            Dictionaries dictionaries, PatientLookup patients) throws IOException {
+        List<Appointment> appointments = new ArrayList<>(count);
+        long epochDay = 0;
+        LocalDate date = null;
+        for (int i = 0; i < count; i++) {
+            long patientId = in.readVarLong();
+            long delta = in.readSignedVarLong();
+            long start = in.readVarLong();
+            long length = in.readSignedVarLong();
+            int status = in.readVarInt();
+
+            if (date == null || delta != 0) {
+                epochDay += delta;
+                date = LocalDate.ofEpochDay(epochDay);
+            }
+            Patient patient = patients.find(patientId)
+                    .orElseThrow(() -> new IOException("Invalid patient id " + patientId + " in snapshot"));
+            LocalTime end = length >= MINUTES_PER_DAY ? timeOf(length)
+                    : start < MINUTES_PER_DAY ? timeOf(start + length) : null;
+            if (end == null) {
+                throw new IOException("Invalid appointment length " + length + " in snapshot");
+            }
+            appointments.add(new Appointment(doctor, patient, date, timeOf(start), end,
+                    status == 0 ? null : lookup(dictionaries.statuses, status - 1)));
+        }
+        return appointments;
+    }
+
+    private static List<Appointment> readReferences(SnapshotInput in, int count, Map<Long, Doctor> doctors)
+            throws IOException {
+        List<Appointment> appointments = new ArrayList<>(count);
+        long epochDay = 0;
+        for (int i = 0; i < count; i++) {
+            long doctorId = in.readVarLong();
+            epochDay += in.readSignedVarLong();
+            LocalTime start = timeOf(in.readVarLong());
+
+            Doctor doctor = doctors.get(doctorId);
+            Appointment appointment = doctor == null ? null
+                    : find(doctor.getAppointments(), LocalDate.ofEpochDay(epochDay), start);
+            if (appointment == null) {
+                throw new IOException("Snapshot references a missing appointment of doctor " + doctorId);
+            }
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    private static Appointment find(List<Appointment> chronological, LocalDate date, LocalTime start) {
+        int low = 0;
+        int high = chronological.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Appointment appointment = chronological.get(middle);
+            int order = appointment.getDate().compareTo(date);
+            if (order == 0) {
+                order = appointment.getStart().compareTo(start);
+            }
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    private static int checkedOffset(ByteBuffer buffer, long offset) throws IOException {
+        if (offset < 0 || offset >= buffer.limit()) {
+            throw new IOException("Invalid offset " + offset + " in snapshot");
+        }
+        return (int) offset;
+    }
+
+    private static String intern(Map<String, Integer> strings, String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+        return value;
+    }
+
+    private static void writeRef(SnapshotOutput out, Map<String, Integer> strings, String value)
+            throws IOException {
+        out.writeVarLong(value == null ? 0 : strings.get(value) + 1);
+    }
+
+    private static void writeNames(SnapshotOutput out, Enum<?>[] values) throws IOException {
+        out.writeVarLong(values.length);
+        for (Enum<?> value : values) {
+            out.writeString(value.name());
+        }
+    }
+
+    private static <E extends Enum<E>> E[] readNames(SnapshotInput in, Class<E> type) throws IOException {
+        E[] values = Arrays.copyOf(type.getEnumConstants(), in.readVarInt());
+        for (int i = 0; i < values.length; i++) {
+            String name = in.readString();
+            try {
+                values[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown " + type.getSimpleName() + " " + name + " in snapshot", e);
+            }
+        }
+        return values;
+    }
+
+    private static <T> T lookup(T[] values, int index) throws IOException {
+        if (index < 0 || index >= values.length) {
+            throw new IOException("Invalid dictionary reference " + index + " in snapshot");
+        }
+        return values[index];
+    }
+
+    private static long requireId(Long id) throws IOException {
+        if (id == null || id < 0) {
+            throw new IOException("Only entities with non-negative ids can be written: " + id);
+        }
+        return id;
+    }
+
+    /**
+     * Minute of day of {@code time}, or if it has seconds {@link #MINUTES_PER_DAY} plus
+     * its nano of day.
+     */
+    private static long timeCode(LocalTime time) {
+        if (time.getSecond() == 0 && time.getNano() == 0) {
+            return time.getHour() * 60 + time.getMinute();
+        }
+        return MINUTES_PER_DAY + time.toNanoOfDay();
+    }
+
+    private static LocalTime timeOf(long code) throws IOException {
+        if (code >= 0 && code < MINUTES_PER_DAY) {
+            return TIMES[(int) code];
+        }
+        long nanos = code - MINUTES_PER_DAY;
+        if (nanos < 0 || nanos > LocalTime.MAX.toNanoOfDay()) {
+            throw new IOException("Invalid time " + code + " in snapshot");
+        }
+        return LocalTime.ofNanoOfDay(nanos);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Dictionaries {
+        private final String[] strings;
+        private final MedicalSpecialty[] specialties;
+        private final Appointment.Status[] statuses;
+
+        private Dictionaries(SnapshotInput in) throws IOException {
+            strings = new String[in.readVarInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readString();
+            }
+            specialties = readNames(in, MedicalSpecialty.class);
+            statuses = readNames(in, Appointment.Status.class);
+        }
+
+        private String string(int ref) throws IOException {
+            return ref == 0 ? null : lookup(strings, ref - 1);
+        }
+    }
+
+    private static final class Trailer {
+        private final int doctorTable;
+        private final int patientTable;
+
+        private Trailer(ByteBuffer buffer) throws IOException {
+            int at = buffer.limit() - TRAILER_SIZE;
+            if (at < 0) {
+                throw new IOException("Snapshot is truncated");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(at + 2 * Long.BYTES + i) != MAGIC[i]) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+            doctorTable = checkedOffset(buffer, buffer.getLong(at));
+            patientTable = checkedOffset(buffer, buffer.getLong(at + Long.BYTES));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hospital.io.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader counterpart of {@link SnapshotOutput} over a heap or memory-mapped buffer.
+ */
+final class SnapshotInput {
+    private final ByteBuffer buffer;
+
+    SnapshotInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Unexpected end of snapshot");
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Value out of range in snapshot: " + value);
+        }
+        return (int) value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() throws IOException {
+        int length = readVarInt();
+        if (length > buffer.remaining()) {
+            throw new IOException("Unexpected end of snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    long readFixedLong() throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            throw new IOException("Unexpected end of snapshot");
+        }
+        return buffer.getLong();
+    }
+
+    int readFixedInt() throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IOException("Unexpected end of snapshot");
+        }
+        return buffer.getInt();
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void position(int position) {
+        buffer.position(position);
+    }
+}
@@ -0,0 +1,697 @@
+package com.hospital.io.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.Doctor;
+import com.hospital.core.Hospital;
+import com.hospital.core.HospitalMutationListener;
+import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.Patient;
+import com.hospital.core.SlotPolicy;
+import com.hospital.core.WorkingCalendar;
+
+/**
+ * Append-only log of the mutations made through a {@link Hospital}. Attach it with
+ * {@link Hospital#setMutationListener}; each call returns once its record is on disk.
+ * Callers that arrive while a write is in progress are committed together by the next
+ * write, so one {@code fsync} covers a whole batch of mutations.
+ *
+ * <p>Each record is framed as a varint payload length, the payload and its CRC-32. A torn
+ * record at the end of the file, left by a crash during a write, is ignored by
+ * {@link #replay} and cut off by {@link #open}.
+ */
+public final class WriteAheadJournal implements HospitalMutationListener, Closeable {
+    private static final int PATIENT_CREATED = 1;
+    private static final int PATIENT_UPDATED = 2;
+    private static final int PATIENT_DELETED = 3;
+    private static final int DOCTOR_CREATED = 4;
+    private static final int DOCTOR_UPDATED = 5;
+    private static final int DOCTOR_DELETED = 6;
+    private static final int APPOINTMENT_BOOKED = 7;
+    private static final int DOCTOR_SPECIALIZATION_CHANGED = 8;
+    private static final int DOCTOR_SLOT_POLICY_CHANGED = 9;
+    private static final int DOCTOR_CALENDAR_CHANGED = 10;
+    private static final int SPECIALTY_SLOT_POLICY_CHANGED = 11;
+    private static final int APPOINTMENT_STATUS_CHANGED = 12;
+    private static final int APPOINTMENTS_ARCHIVED = 13;
+
+    private static final MedicalSpecialty[] SPECIALTIES = MedicalSpecialty.values();
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    private final Path path;
+    private FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final SnapshotOutput record = new SnapshotOutput(payload);
+    private final CRC32 crc = new CRC32();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final SnapshotOutput frame = new SnapshotOutput(new SwappableStream());
+
+    private long appended;
+    private long durable;
+    private boolean writing;
+    private IOException failure;
+    private boolean closed;
+
+    private WriteAheadJournal(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens {@code path} for appending, creating it if needed and dropping a torn
+     * record left at its end. Records of an unfinished checkpoint stay in the previous
+     * segment until {@link #completeCheckpoint()}.
+     */
+    public static WriteAheadJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long valid = validLength(ByteBuffer.wrap(Files.readAllBytes(path)));
+            channel.truncate(valid);
+            channel.position(valid);
+            channel.force(true);
+            return new WriteAheadJournal(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the records of {@code path} to {@code hospital}, typically one just loaded
+     * from the last snapshot, and returns how many were read. Replaying is idempotent:
+     * records whose effect is already present change nothing, and neither do records
+     * about a doctor or patient that the log deletes. Any other record that cannot be
+     * applied, such as a booking for an unknown patient or one that clashes with
+     * another appointment, fails the replay with an {@code IOException}. The hospital
+     * must not have a journal attached yet. The previous segment of an unfinished
+     * checkpoint is replayed first.
+     */
+    public static int replay(Path path, Hospital hospital) throws IOException {
+        List<ByteBuffer> segments = new ArrayList<>();
+        for (Path segment : List.of(previousSegment(path), path)) {
+            if (Files.exists(segment)) {
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+                segments.add(buffer.limit((int) validLength(buffer.duplicate())));
+            }
+        }
+        Deletions deleted = new Deletions();
+        for (ByteBuffer segment : segments) {
+            deleted.collect(segment.duplicate());
+        }
+        int records = 0;
+        for (ByteBuffer segment : segments) {
+            SnapshotInput in = new SnapshotInput(segment);
+            while (segment.hasRemaining()) {
+                in.readVarLong();
+                apply(in, hospital, deleted);
+                in.readFixedInt();
+                records++;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public void patientCreated(Patient patient) {
+        append(out -> {
+            out.writeByte(PATIENT_CREATED);
+            out.writeVarLong(patient.getId());
+            writeOptional(out, patient.getFirstName());
+            writeOptional(out, patient.getLastName());
+            writeOptional(out, patient.getDateOfBirth());
+        });
+    }
+
+    @Override
+    public void patientUpdated(Long id, String firstName, String lastName, LocalDate dateOfBirth) {
+        append(out -> {
+            out.writeByte(PATIENT_UPDATED);
+            out.writeVarLong(id);
+            writeOptional(out, firstName);
+            writeOptional(out, lastName);
+            writeOptional(out, dateOfBirth);
+        });
+    }
+
+    @Override
+    public void patientDeleted(Long id) {
+        append(out -> {
+            out.writeByte(PATIENT_DELETED);
+            out.writeVarLong(id);
+        });
+    }
+
+    @Override
+    public void doctorCreated(Doctor doctor) {
+        append(out -> {
+            out.writeByte(DOCTOR_CREATED);
+            out.writeVarLong(doctor.getId());
+            writeOptional(out, doctor.getFirstName());
+            writeOptional(out, doctor.getLastName());
+            out.writeVarLong(doctor.getSpecialization() == null ? 0 : doctor.getSpecialization().ordinal() + 1);
+            writeOptional(out, doctor.getWorkStart());
+            writeOptional(out, doctor.getWorkEnd());
+        });
+    }
+
+    @Override
+    public void doctorUpdated(Long id, String firstName, String lastName, LocalTime workStart, LocalTime workEnd) {
+        append(out -> {
+            out.writeByte(DOCTOR_UPDATED);
+            out.writeVarLong(id);
+            writeOptional(out, firstName);
+            writeOptional(out, lastName);
+            writeOptional(out, workStart);
+            writeOptional(out, workEnd);
+        });
+    }
+
+    @Override
+    public void doctorDeleted(long id) {
+        append(out -> {
+            out.writeByte(DOCTOR_DELETED);
+            out.writeVarLong(id);
+        });
+    }
+
+    @Override
+    public void appointmentBooked(Appointment appointment) {
+        append(out -> {
+            out.writeByte(APPOINTMENT_BOOKED);
+            out.writeVarLong(appointment.getDoctor().getId());
+            out.writeVarLong(appointment.getPatient().getId());
+            out.writeSignedVarLong(appointment.getDate().toEpochDay());
+            out.writeVarLong(appointment.getStart().toNanoOfDay());
+            out.writeVarLong(appointment.getEnd().toNanoOfDay());
+            out.writeVarLong(appointment.getStatus().ordinal());
+        });
+    }
+
+    @Override
+    public void doctorSpecializationChanged(long id, MedicalSpecialty specialization) {
+        append(out -> {
+            out.writeByte(DOCTOR_SPECIALIZATION_CHANGED);
+            out.writeVarLong(id);
+            out.writeVarLong(specialization == null ? 0 : specialization.ordinal() + 1);
+        });
+    }
+
+    @Override
+    public void doctorSlotPolicyChanged(long id, SlotPolicy policy) {
+        append(out -> {
+            out.writeByte(DOCTOR_SLOT_POLICY_CHANGED);
+            out.writeVarLong(id);
+            writeOptional(out, policy);
+        });
+    }
+
+    @Override
+    public void doctorCalendarChanged(long id, WorkingCalendar calendar) {
+        append(out -> {
+            out.writeByte(DOCTOR_CALENDAR_CHANGED);
+            out.writeVarLong(id);
+            BinarySnapshot.writeCalendar(out, calendar);
+        });
+    }
+
+    @Override
+    public void specialtySlotPolicyChanged(MedicalSpecialty specialty, SlotPolicy policy) {
+        append(out -> {
+            out.writeByte(SPECIALTY_SLOT_POLICY_CHANGED);
+            out.writeVarLong(specialty.ordinal());
+            writeOptional(out, policy);
+        });
+    }
+
+    @Override
+    public void appointmentStatusChanged(Appointment appointment) {
+        Appointment.Status status = appointment.getStatus();
+        append(out -> {
+            out.writeByte(APPOINTMENT_STATUS_CHANGED);
+            out.writeVarLong(appointment.getDoctor().getId());
+            out.writeVarLong(appointment.getPatient().getId());
+            out.writeSignedVarLong(appointment.getDate().toEpochDay());
+            out.writeVarLong(appointment.getStart().toNanoOfDay());
+            out.writeVarLong(status == null ? 0 : status.ordinal() + 1);
+        });
+    }
+
+    @Override
+    public void appointmentsArchived(LocalDate cutoff) {
+        append(out -> {
+            out.writeByte(APPOINTMENTS_ARCHIVED);
+            out.writeSignedVarLong(cutoff.toEpochDay());
+        });
+    }
+
+    /**
+     * Waits for every appended record to be written and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            awaitDurable(appended);
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+    }
+
+    /**
+     * Moves every record appended so far to the previous segment, so that a snapshot
+     * started after this call can replace them. Until {@link #completeCheckpoint()} both
+     * segments are replayed on recovery; replaying is idempotent, so whether the crash
+     * happened before or after the new snapshot was stored does not matter. If an earlier
+     * checkpoint never completed, the records are added to its segment instead.
+     */
+    public void beginCheckpoint() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            awaitDurable(appended);
+            while (writing) {
+                committed.awaitUninterruptibly();
+            }
+            Path previous = previousSegment(path);
+            if (Files.exists(previous)) {
+                try (FileChannel target = FileChannel.open(previous, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    long copied = 0;
+                    while (copied < channel.size()) {
+                        copied += channel.transferTo(copied, channel.size() - copied, target);
+                    }
+                    target.force(true);
+                }
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+            } else {
+                Files.move(path, previous, StandardCopyOption.ATOMIC_MOVE);
+                FileChannel next = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.close();
+                channel = next;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the records moved aside by {@link #beginCheckpoint()}, once the snapshot
+     * that covers them is safely stored.
+     */
+    public void completeCheckpoint() throws IOException {
+        Files.deleteIfExists(previousSegment(path));
+    }
+
+    private static Path previousSegment(Path path) {
+        return path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    private interface RecordWriter {
+        void write(SnapshotOutput out) throws IOException;
+    }
+
+    private void append(RecordWriter writer) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            payload.reset();
+            writer.write(record);
+            record.flush();
+            byte[] bytes = payload.toByteArray();
+            crc.reset();
+            crc.update(bytes);
+
+            frame.writeVarLong(bytes.length);
+            frame.writeBytes(bytes);
+            frame.writeFixedInt((int) crc.getValue());
+            frame.flush();
+            awaitDurable(++appended);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: the first waiter writes and forces everything appended so far while
+     * the others wait, then the lock is handed on to whoever is still behind.
+     */
+    private void awaitDurable(long sequence) throws IOException {
+        while (durable < sequence) {
+            if (failure != null) {
+                throw new IOException("Journal write failed", failure);
+            }
+            if (writing) {
+                committed.awaitUninterruptibly();
+                continue;
+            }
+
+            writing = true;
+            ByteArrayOutputStream batch = pending;
+            pending = spare;
+            long upTo = appended;
+            FileChannel target = channel;
+            lock.unlock();
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                lock.lock();
+                batch.reset();
+                spare = batch;
+                writing = false;
+                if (failure == null) {
+                    durable = upTo;
+                }
+                committed.signalAll();
+            }
+        }
+    }
+
+    private static void apply(SnapshotInput in, Hospital hospital, Deletions deleted) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case PATIENT_CREATED -> {
+                Patient patient = new Patient(in.readVarLong(), readString(in), readString(in), readDate(in));
+                Patient existing = hospital.getPatient(patient.getId()).orElse(null);
+                if (existing == null) {
+                    hospital.addPatient(patient);
+                } else {
+                    // Keep the instance that snapshot appointments already point to.
+                    existing.setFirstName(patient.getFirstName());
+                    existing.setLastName(patient.getLastName());
+                    existing.setDateOfBirth(patient.getDateOfBirth());
+                }
+            }
+            case PATIENT_UPDATED -> {
+                long id = in.readVarLong();
+                String firstName = readString(in);
+                String lastName = readString(in);
+                LocalDate dateOfBirth = readDate(in);
+                if (patient(hospital, id, deleted) != null) {
+                    hospital.updatePatient(id, firstName, lastName, dateOfBirth);
+                }
+            }
+            case PATIENT_DELETED -> ignoreMissing(() -> hospital.deletePatient(in.readVarLong()));
+            case DOCTOR_CREATED -> {
+                long id = in.readVarLong();
+                String firstName = readString(in);
+                String lastName = readString(in);
+                int specialty = in.readVarInt();
+                Doctor doctor = new Doctor(id, firstName, lastName,
+                        specialty == 0 ? null : lookup(SPECIALTIES, specialty - 1), readTime(in), readTime(in));
+                Doctor existing = hospital.getDoctor(id).orElse(null);
+                if (existing == null) {
+                    hospital.addDoctor(doctor);
+                } else {
+                    existing.setFirstName(doctor.getFirstName());
+                    existing.setLastName(doctor.getLastName());
+                    existing.setSpecialization(doctor.getSpecialization());
+                    existing.setWorkStart(doctor.getWorkStart());
+                    existing.setWorkEnd(doctor.getWorkEnd());
+                }
+            }
+            case DOCTOR_UPDATED -> {
+                long id = in.readVarLong();
+                String firstName = readString(in);
+                String lastName = readString(in);
+                LocalTime workStart = readTime(in);
+                LocalTime workEnd = readTime(in);
+                if (doctor(hospital, id, deleted) != null) {
+                    hospital.updateDoctor(id, firstName, lastName, workStart, workEnd);
+                }
+            }
+            case DOCTOR_DELETED -> ignoreMissing(() -> hospital.deleteDoctor(in.readVarLong()));
+            case APPOINTMENT_BOOKED -> {
+                Doctor doctor = doctor(hospital, in.readVarLong(), deleted);
+                Patient patient = patient(hospital, in.readVarLong(), deleted);
+                LocalDate date = LocalDate.ofEpochDay(in.readSignedVarLong());
+                LocalTime start = LocalTime.ofNanoOfDay(in.readVarLong());
+                LocalTime end = LocalTime.ofNanoOfDay(in.readVarLong());
+                Appointment.Status status = lookup(STATUSES, in.readVarInt());
+                if (doctor == null || patient == null || find(doctor, patient.getId(), date, start) != null) {
+                    return;
+                }
+                Appointment appointment = new Appointment(doctor, patient, date, start, end, status);
+                if (!doctor.canAcceptAppointment(appointment) || !patient.canAcceptAppointment(appointment)) {
+                    throw new IOException("Journal booking of doctor " + doctor.getId() + " and patient "
+                            + patient.getId() + " on " + date + " at " + start + " clashes with the schedule");
+                }
+                doctor.addAppointment(appointment);
+                patient.addAppointment(appointment);
+            }
+            case DOCTOR_SPECIALIZATION_CHANGED -> {
+                Doctor doctor = doctor(hospital, in.readVarLong(), deleted);
+                int specialty = in.readVarInt();
+                if (doctor != null) {
+                    doctor.setSpecialization(specialty == 0 ? null : lookup(SPECIALTIES, specialty - 1));
+                }
+            }
+            case DOCTOR_SLOT_POLICY_CHANGED -> {
+                Doctor doctor = doctor(hospital, in.readVarLong(), deleted);
+                SlotPolicy policy = readSlotPolicy(in);
+                if (doctor != null) {
+                    doctor.setSlotPolicy(policy);
+                }
+            }
+            case DOCTOR_CALENDAR_CHANGED -> {
+                Doctor doctor = doctor(hospital, in.readVarLong(), deleted);
+                WorkingCalendar calendar = BinarySnapshot.readCalendar(in);
+                if (doctor != null) {
+                    doctor.setWorkingCalendar(calendar);
+                }
+            }
+            case SPECIALTY_SLOT_POLICY_CHANGED ->
+                    hospital.setSlotPolicy(lookup(SPECIALTIES, in.readVarInt()), readSlotPolicy(in));
+            case APPOINTMENT_STATUS_CHANGED -> {
+                Doctor doctor = doctor(hospital, in.readVarLong(), deleted);
+                Patient patient = patient(hospital, in.readVarLong(), deleted);
+                LocalDate date = LocalDate.ofEpochDay(in.readSignedVarLong());
+                LocalTime start = LocalTime.ofNanoOfDay(in.readVarLong());
+                int status = in.readVarInt();
+                if (doctor == null || patient == null) {
+                    return;
+                }
+                Appointment appointment = find(doctor, patient.getId(), date, start);
+                if (appointment == null) {
+                    throw new IOException("Journal changes the status of a missing appointment of doctor "
+                            + doctor.getId() + " and patient " + patient.getId() + " on " + date + " at " + start);
+                }
+                appointment.setStatus(status == 0 ? null : lookup(STATUSES, status - 1));
+            }
+            case APPOINTMENTS_ARCHIVED -> hospital.archiveAppointmentsBefore(LocalDate.ofEpochDay(in.readSignedVarLong()));
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * The doctor with {@code id}, or {@code null} if the log deletes them, in which case
+     * records about them are skipped.
+     */
+    private static Doctor doctor(Hospital hospital, long id, Deletions deleted) throws IOException {
+        Doctor doctor = hospital.getDoctor(id).orElse(null);
+        if (doctor == null && !deleted.doctors.contains(id)) {
+            throw new IOException("Journal refers to unknown doctor " + id);
+        }
+        return doctor;
+    }
+
+    /**
+     * The patient with {@code id}, or {@code null} if the log deletes them, in which case
+     * records about them are skipped.
+     */
+    private static Patient patient(Hospital hospital, long id, Deletions deleted) throws IOException {
+        Patient patient = hospital.getPatient(id).orElse(null);
+        if (patient == null && !deleted.patients.contains(id)) {
+            throw new IOException("Journal refers to unknown patient " + id);
+        }
+        return patient;
+    }
+
+    private static Appointment find(Doctor doctor, long patientId, LocalDate date, LocalTime start) {
+        for (Appointment appointment : doctor.getAppointmentsBetween(date, date.plusDays(1))) {
+            Patient patient = appointment.getPatient();
+            if (appointment.getStart().equals(start) && patient != null && patient.getId() == patientId) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    /** Ids of the doctors and patients deleted anywhere in the replayed segments. */
+    private static final class Deletions {
+        final Set<Long> patients = new HashSet<>();
+        final Set<Long> doctors = new HashSet<>();
+
+        void collect(ByteBuffer buffer) throws IOException {
+            SnapshotInput in = new SnapshotInput(buffer);
+            while (buffer.hasRemaining()) {
+                int length = in.readVarInt();
+                int next = buffer.position() + length + Integer.BYTES;
+                int type = in.readByte();
+                if (type == PATIENT_DELETED) {
+                    patients.add(in.readVarLong());
+                } else if (type == DOCTOR_DELETED) {
+                    doctors.add(in.readVarLong());
+                }
+                buffer.position(next);
+            }
+        }
+    }
+
+    private interface Mutation {
+        void run() throws IOException;
+    }
+
+    private static void ignoreMissing(Mutation mutation) throws IOException {
+        try {
+            mutation.run();
+        } catch (NoSuchElementException e) {
+            // Already deleted, either in the snapshot or by a record replayed earlier.
+        }
+    }
+
+    /**
+     * Length of the prefix of {@code buffer} made of complete records with valid checksums.
+     */
+    private static long validLength(ByteBuffer buffer) {
+        SnapshotInput in = new SnapshotInput(buffer);
+        CRC32 checksum = new CRC32();
+        int valid = 0;
+        while (buffer.hasRemaining()) {
+            try {
+                int length = in.readVarInt();
+                if (length > buffer.remaining() - Integer.BYTES) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(buffer.slice(buffer.position(), length));
+                buffer.position(buffer.position() + length);
+                if (in.readFixedInt() != (int) checksum.getValue()) {
+                    break;
+                }
+            } catch (IOException e) {
+                break;
+            }
+            valid = buffer.position();
+        }
+        return valid;
+    }
+
+    private static void writeOptional(SnapshotOutput out, String value) throws IOException {
+        out.writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            out.writeString(value);
+        }
+    }
+
+    private static void writeOptional(SnapshotOutput out, LocalDate value) throws IOException {
+        out.writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            out.writeSignedVarLong(value.toEpochDay());
+        }
+    }
+
+    private static void writeOptional(SnapshotOutput out, LocalTime value) throws IOException {
+        out.writeVarLong(value == null ? 0 : value.toNanoOfDay() + 1);
+    }
+
+    private static void writeOptional(SnapshotOutput out, SlotPolicy value) throws IOException {
+        out.writeVarLong(value == null ? 0 : value.getSlotMinutes());
+        if (value != null) {
+            out.writeVarLong(value.getVisitMinutes());
+        }
+    }
+
+    private static String readString(SnapshotInput in) throws IOException {
+        return in.readByte() == 0 ? null : in.readString();
+    }
+
+    private static LocalDate readDate(SnapshotInput in) throws IOException {
+        return in.readByte() == 0 ? null : LocalDate.ofEpochDay(in.readSignedVarLong());
+    }
+
+    private static LocalTime readTime(SnapshotInput in) throws IOException {
+        long value = in.readVarLong();
+        if (value > LocalTime.MAX.toNanoOfDay() + 1) {
+            throw new IOException("Invalid time in journal");
+        }
+        return value == 0 ? null : LocalTime.ofNanoOfDay(value - 1);
+    }
+
+    private static SlotPolicy readSlotPolicy(SnapshotInput in) throws IOException {
+        int slotMinutes = in.readVarInt();
+        if (slotMinutes == 0) {
+            return null;
+        }
+        int visitMinutes = in.readVarInt();
+        try {
+            return new SlotPolicy(slotMinutes, visitMinutes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid slot policy in journal", e);
+        }
+    }
+
+    private static <T> T lookup(T[] values, int index) throws IOException {
+        if (index < 0 || index >= values.length) {
+            throw new IOException("Invalid enum index " + index + " in journal");
+        }
+        return values[index];
+    }
+
+    private final class SwappableStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            pending.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            pending.write(bytes, offset, length);
+        }
+    }
+}
@@ -3,19 +3,20 @@ package com.hospital.io.json;
 import java.util.Comparator;
 
 import com.hospital.core.Appointment;
+import com.hospital.core.AppointmentOrder;
 
 public enum AppointmentComparator {
-    BY_DATE("Дата прийому", Comparator.comparing(Appointment::getDate)),
-    BY_START_TIME("Час початку прийому", Comparator.comparing(Appointment::getStart)),
-    BY_PATIENT_ID("Пацієнт (ID)", Comparator.comparing(a -> a.getPatient().getId())),
-    BY_DOCTOR_ID("Лікар (ID)", Comparator.comparing(a -> a.getDoctor().getId()));
+    BY_DATE("Дата прийому", AppointmentOrder.BY_DATE),
+    BY_START_TIME("Час початку прийому", AppointmentOrder.BY_START_TIME),
+    BY_PATIENT_ID("Пацієнт (ID)", AppointmentOrder.BY_PATIENT_ID),
+    BY_DOCTOR_ID("Лікар (ID)", AppointmentOrder.BY_DOCTOR_ID);
 
     private final String displayName;
     private final Comparator<Appointment> comparator;
 
-    AppointmentComparator(String displayName, Comparator<Appointment> comparator) {
+    AppointmentComparator(String displayName, AppointmentOrder order) {
         this.displayName = displayName;
-        this.comparator = comparator;
+        this.comparator = order.getComparator();
     }
 
     public String getDisplayName() {
@@ -25,4 +26,16 @@ public enum AppointmentComparator {
     public Comparator<Appointment> getComparator() {
         return comparator;
     }
+
+    /**
+     * The constant whose comparator is {@code comparator}, or {@code null}.
+     */
+    public static AppointmentComparator of(Comparator<Appointment> comparator) {
+        for (AppointmentComparator order : values()) {
+            if (order.comparator == comparator) {
+                return order;
+            }
+        }
+        return null;
+    }
 }
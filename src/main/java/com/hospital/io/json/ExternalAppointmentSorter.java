@@ -0,0 +1,199 @@
+package com.hospital.io.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.hospital.core.Appointment;
+import com.hospital.core.Doctor;
+import com.hospital.core.Hospital;
+import com.hospital.core.Patient;
+
+/**
+ * Sorts appointments in bounded memory: runs of at most {@code runSize} appointments are
+ * sorted and spilled to temporary files, which are then k-way merged. Spilled records
+ * hold only ids and primitive values; doctors and patients are looked up again in the
+ * hospital when a record is read back.
+ */
+final class ExternalAppointmentSorter implements Closeable {
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    interface AppointmentSink {
+        void accept(Appointment appointment) throws IOException;
+    }
+
+    private final Hospital hospital;
+    private final Comparator<Appointment> comparator;
+    private final int runSize;
+    private final List<Appointment> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+
+    ExternalAppointmentSorter(Hospital hospital, Comparator<Appointment> comparator, int runSize) {
+        this.hospital = hospital;
+        this.comparator = comparator;
+        this.runSize = runSize;
+    }
+
+    void add(Appointment appointment) throws IOException {
+        buffer.add(appointment);
+        if (buffer.size() >= runSize) {
+            spill();
+        }
+    }
+
+    void forEachSorted(AppointmentSink sink) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            for (Appointment appointment : buffer) {
+                sink.accept(appointment);
+            }
+            return;
+        }
+
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            mergePass();
+        }
+        merge(runs, sink);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(comparator);
+        Path run = Files.createTempFile("appointments-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = openRun(run)) {
+            for (Appointment appointment : buffer) {
+                write(out, appointment);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Merges consecutive groups of runs into single runs, keeping the groups in their
+     * original order so that equal appointments keep their insertion order.
+     */
+    private void mergePass() throws IOException {
+        List<Path> sources = new ArrayList<>(runs);
+        List<Path> merged = new ArrayList<>();
+        for (int from = 0; from < sources.size(); from += MAX_FAN_IN) {
+            List<Path> group = sources.subList(from, Math.min(from + MAX_FAN_IN, sources.size()));
+            if (group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
+            }
+            Path target = Files.createTempFile("appointments-", ".run");
+            runs.add(target);
+            try (DataOutputStream out = openRun(target)) {
+                merge(group, appointment -> write(out, appointment));
+            }
+            merged.add(target);
+            for (Path run : group) {
+                Files.deleteIfExists(run);
+                runs.remove(run);
+            }
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private void merge(List<Path> sources, AppointmentSink sink) throws IOException {
+        PriorityQueue<RunCursor> heads = new PriorityQueue<>(sources.size(), (a, b) -> {
+            int order = comparator.compare(a.head, b.head);
+            return order != 0 ? order : Integer.compare(a.index, b.index);
+        });
+        List<RunCursor> cursors = new ArrayList<>(sources.size());
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                RunCursor cursor = new RunCursor(i, new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(sources.get(i)), BUFFER_SIZE)));
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunCursor cursor = heads.poll();
+                sink.accept(cursor.head);
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.in.close();
+            }
+        }
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    private static void write(DataOutputStream out, Appointment appointment) throws IOException {
+        out.writeLong(appointment.getDoctor().getId());
+        out.writeLong(appointment.getPatient().getId());
+        out.writeLong(appointment.getDate().toEpochDay());
+        out.writeByte(appointment.getStatus().ordinal());
+        out.writeLong(appointment.getStart().toNanoOfDay());
+        out.writeLong(appointment.getEnd().toNanoOfDay());
+    }
+
+    private final class RunCursor {
+        private final int index;
+        private final DataInputStream in;
+        private Appointment head;
+
+        private RunCursor(int index, DataInputStream in) {
+            this.index = index;
+            this.in = in;
+        }
+
+        private boolean advance() throws IOException {
+            long doctorId;
+            try {
+                doctorId = in.readLong();
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+            long patientId = in.readLong();
+            Doctor doctor = hospital.getDoctor(doctorId)
+                    .orElseGet(() -> new Doctor(doctorId, null, null, null, null, null));
+            Patient patient = hospital.getPatient(patientId)
+                    .orElseGet(() -> new Patient(patientId, null, null, null));
+            LocalDate date = LocalDate.ofEpochDay(in.readLong());
+            Appointment.Status status = STATUSES[in.readByte()];
+            LocalTime start = LocalTime.ofNanoOfDay(in.readLong());
+            LocalTime end = LocalTime.ofNanoOfDay(in.readLong());
+            head = new Appointment(doctor, patient, date, start, end, status);
+            return true;
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package com.hospital.io.json;
 
 import java.io.IOException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.hospital.core.Appointment;
 import com.hospital.core.Doctor;
 import com.hospital.core.Hospital;
+import com.hospital.core.MedicalSpecialty;
 import com.hospital.core.Patient;
+import com.hospital.core.SlotPolicy;
+import com.hospital.core.WorkingCalendar;
 
+/**
+ * Reads a hospital straight from the token stream, without building a tree of the
+ * document. Appointments are attached as soon as they are read; only appointments
+ * that appear before the doctor or patient they reference are held back until the end.
+ */
 public class HospitalDeserializer extends StdDeserializer<Hospital> {
 
     public HospitalDeserializer() {
@@ -22,50 +35,272 @@ public class HospitalDeserializer extends StdDeserializer<Hospital> {
 
     @Override
     public Hospital deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        ObjectCodec codec = jp.getCodec();
-        JsonNode root = codec.readTree(jp);
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
 
         Hospital hospital = new Hospital();
+        List<AppointmentRecord> unresolved = new ArrayList<>();
+        LocalDate archivedBefore = null;
 
-        JsonNode doctorsNode = root.get("doctors");
-        if (doctorsNode != null && doctorsNode.isArray()) {
-            for (JsonNode node : doctorsNode) {
-                Doctor doctor = codec.treeToValue(node, Doctor.class);
-                hospital.addDoctor(doctor);
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            JsonToken value = jp.nextToken();
+            switch (field) {
+                case "slotPolicies" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        readSlotPolicy(jp, hospital);
+                    }
+                }
+                case "doctors" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        hospital.addDoctor(readDoctor(jp));
+                    }
+                }
+                case "patients" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        hospital.addPatient(readPatient(jp));
+                    }
+                }
+                case "appointments" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        AppointmentRecord record = readAppointment(jp);
+                        if (!record.attachTo(hospital)) {
+                            unresolved.add(record);
+                        }
+                    }
+                }
+                case "archivedBefore" -> archivedBefore = readDate(jp);
+                default -> jp.skipChildren();
             }
         }
 
-        JsonNode patientsNode = root.get("patients");
-        if (patientsNode != null && patientsNode.isArray()) {
-            for (JsonNode node : patientsNode) {
-                Patient patient = codec.treeToValue(node, Patient.class);
-                hospital.addPatient(patient);
+        for (AppointmentRecord record : unresolved) {
+            if (!record.attachTo(hospital)) {
+                throw JsonMappingException.from(jp, "Invalid doctorId or patientId in appointment");
             }
         }
+        if (archivedBefore != null) {
+            hospital.archiveAppointmentsBefore(archivedBefore);
+        }
 
-        JsonNode appointmentsNode = root.get("appointments");
-        if (appointmentsNode != null && appointmentsNode.isArray()) {
-            for (JsonNode apptNode : appointmentsNode) {
-                long doctorId = apptNode.get("doctor").asLong();
-                long patientId = apptNode.get("patient").asLong();
-                LocalDate date = LocalDate.parse(apptNode.get("date").asText());
-                Appointment.Status status = Appointment.Status.valueOf(apptNode.get("status").asText());
-                LocalTime start = LocalTime.parse(apptNode.get("start").asText());
-                LocalTime end = LocalTime.parse(apptNode.get("end").asText());
+        return hospital;
+    }
 
-                Doctor doctor = hospital.getDoctor(doctorId).get();
-                Patient patient = hospital.getPatient(patientId).get();
+    private static void readSlotPolicy(JsonParser jp, Hospital hospital) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        MedicalSpecialty specialty = null;
+        Integer slotMinutes = null;
+        Integer visitMinutes = null;
 
-                if (doctor == null || patient == null) {
-                    throw new RuntimeException("Invalid doctorId or patientId in appointment");
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            jp.nextToken();
+            switch (field) {
+                case "specialty" -> specialty = readSpecialty(jp);
+                case "slotMinutes" -> slotMinutes = jp.getValueAsInt();
+                case "visitMinutes" -> visitMinutes = jp.getValueAsInt();
+                default -> jp.skipChildren();
+            }
+        }
+        if (specialty == null || slotMinutes == null || visitMinutes == null) {
+            throw JsonMappingException.from(jp, "Slot policies need a specialty, slotMinutes and visitMinutes");
+        }
+        try {
+            hospital.setSlotPolicy(specialty, new SlotPolicy(slotMinutes, visitMinutes));
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(jp, e.getMessage(), e);
+        }
+    }
+
+    private static Doctor readDoctor(JsonParser jp) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        Long id = null;
+        String firstName = null;
+        String lastName = null;
+        MedicalSpecialty specialization = null;
+        LocalTime workStart = null;
+        LocalTime workEnd = null;
+        Integer slotMinutes = null;
+        Integer visitMinutes = null;
+        WorkingCalendar calendar = null;
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            jp.nextToken();
+            switch (field) {
+                case "id" -> id = readLong(jp);
+                case "firstName" -> firstName = jp.getValueAsString();
+                case "lastName" -> lastName = jp.getValueAsString();
+                case "specialization" -> specialization = readSpecialty(jp);
+                case "workStart" -> workStart = readTime(jp);
+                case "workEnd" -> workEnd = readTime(jp);
+                case "slotMinutes" -> slotMinutes = jp.getValueAsInt();
+                case "visitMinutes" -> visitMinutes = jp.getValueAsInt();
+                case "calendar" -> calendar = readCalendar(jp);
+                default -> jp.skipChildren();
+            }
+        }
+        Doctor doctor = new Doctor(id, firstName, lastName, specialization, workStart, workEnd);
+        if (slotMinutes != null || visitMinutes != null) {
+            if (slotMinutes == null || visitMinutes == null) {
+                throw JsonMappingException.from(jp, "slotMinutes and visitMinutes must be given together");
+            }
+            try {
+                doctor.setSlotPolicy(new SlotPolicy(slotMinutes, visitMinutes));
+            } catch (IllegalArgumentException e) {
+                throw JsonMappingException.from(jp, e.getMessage(), e);
+            }
+        }
+        doctor.setWorkingCalendar(calendar);
+        return doctor;
+    }
+
+    private static WorkingCalendar readCalendar(JsonParser jp) throws IOException {
+        if (jp.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        List<LocalDate> holidays = new ArrayList<>();
+        List<LocalDate[]> vacations = new ArrayList<>();
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            JsonToken value = jp.nextToken();
+            switch (field) {
+                case "weekdays" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        weekdays.add(DayOfWeek.valueOf(jp.getText()));
+                    }
+                }
+                case "holidays" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        holidays.add(readDate(jp));
+                    }
                 }
+                case "vacations" -> {
+                    expect(jp, value, JsonToken.START_ARRAY);
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        vacations.add(readVacation(jp));
+                    }
+                }
+                default -> jp.skipChildren();
+            }
+        }
 
-                Appointment appointment = new Appointment(doctor, patient, date, start, end, status);
-                doctor.addAppointment(appointment);
-                patient.addAppointment(appointment);
+        try {
+            WorkingCalendar calendar = new WorkingCalendar(weekdays).withHolidays(holidays);
+            for (LocalDate[] vacation : vacations) {
+                calendar = calendar.withVacation(vacation[0], vacation[1]);
             }
+            return calendar;
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(jp, e.getMessage(), e);
         }
+    }
 
-        return hospital;
+    private static LocalDate[] readVacation(JsonParser jp) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        LocalDate[] vacation = new LocalDate[2];
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            jp.nextToken();
+            switch (field) {
+                case "from" -> vacation[0] = readDate(jp);
+                case "to" -> vacation[1] = readDate(jp);
+                default -> jp.skipChildren();
+            }
+        }
+        return vacation;
+    }
+
+    private static Patient readPatient(JsonParser jp) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        Long id = null;
+        String firstName = null;
+        String lastName = null;
+        LocalDate dateOfBirth = null;
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            jp.nextToken();
+            switch (field) {
+                case "id" -> id = readLong(jp);
+                case "firstName" -> firstName = jp.getValueAsString();
+                case "lastName" -> lastName = jp.getValueAsString();
+                case "dateOfBirth" -> dateOfBirth = readDate(jp);
+                default -> jp.skipChildren();
+            }
+        }
+        return new Patient(id, firstName, lastName, dateOfBirth);
+    }
+
+    private static AppointmentRecord readAppointment(JsonParser jp) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        AppointmentRecord record = new AppointmentRecord();
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.currentName();
+            jp.nextToken();
+            switch (field) {
+                case "doctor" -> record.doctorId = jp.getValueAsLong();
+                case "patient" -> record.patientId = jp.getValueAsLong();
+                case "date" -> record.date = readDate(jp);
+                case "status" -> record.status = Appointment.Status.valueOf(jp.getText());
+                case "start" -> record.start = readTime(jp);
+                case "end" -> record.end = readTime(jp);
+                default -> jp.skipChildren();
+            }
+        }
+        return record;
+    }
+
+    private static Long readLong(JsonParser jp) throws IOException {
+        return jp.currentToken() == JsonToken.VALUE_NULL ? null : jp.getValueAsLong();
+    }
+
+    private static MedicalSpecialty readSpecialty(JsonParser jp) throws IOException {
+        return jp.currentToken() == JsonToken.VALUE_NULL ? null : MedicalSpecialty.valueOf(jp.getText());
+    }
+
+    private static LocalDate readDate(JsonParser jp) throws IOException {
+        return jp.currentToken() == JsonToken.VALUE_NULL ? null : LocalDate.parse(jp.getText());
+    }
+
+    private static LocalTime readTime(JsonParser jp) throws IOException {
+        return jp.currentToken() == JsonToken.VALUE_NULL ? null : LocalTime.parse(jp.getText());
+    }
+
+    private static void expect(JsonParser jp, JsonToken actual, JsonToken expected) throws JsonMappingException {
+        if (actual != expected) {
+            throw JsonMappingException.from(jp, "Expected " + expected + " but found " + actual);
+        }
+    }
+
+    private static final class AppointmentRecord {
+        private long doctorId;
+        private long patientId;
+        private LocalDate date;
+        private Appointment.Status status;
+        private LocalTime start;
+        private LocalTime end;
+
+        private boolean attachTo(Hospital hospital) {
+            Doctor doctor = hospital.getDoctor(doctorId).orElse(null);
+            Patient patient = hospital.getPatient(patientId).orElse(null);
+            if (doctor == null || patient == null) {
+                return false;
+            }
+
+            Appointment appointment = new Appointment(doctor, patient, date, start, end, status);
+            doctor.addAppointment(appointment);
+            patient.addAppointment(appointment);
+            return true;
+        }
     }
 }
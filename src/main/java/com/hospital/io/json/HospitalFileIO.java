@@ -4,43 +4,99 @@ import com.fasterxml.jackson.core.exc.StreamReadException;
 import com.fasterxml.jackson.core.exc.StreamWriteException;
 import com.fasterxml.jackson.databind.DatabindException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.hospital.core.Appointment;
 import com.hospital.core.Hospital;
+import com.hospital.io.binary.BinarySnapshot;
+import com.hospital.io.binary.WriteAheadJournal;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class HospitalFileIO {
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter writer;
+    private static final Map<AppointmentComparator, ObjectWriter> sortedWriters =
+            new EnumMap<>(AppointmentComparator.class);
 
     static {
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
         mapper.registerModule(new JavaTimeModule());
+
+        writer = mapper.writerFor(Hospital.class);
+        for (AppointmentComparator order : AppointmentComparator.values()) {
+            sortedWriters.put(order, writer.withAttribute(HospitalSerializer.COMPARATOR_ATTRIBUTE,
+                    order.getComparator()));
+        }
     }
 
+    /**
+     * Writes the hospital with its appointments in the order of {@code comparator}, or
+     * unsorted if it is {@code null}. The comparators of {@link AppointmentComparator}
+     * use writers prepared in advance.
+     */
     public void saveToFile(Hospital hospital, String filePath, Comparator<Appointment> comparator)
             throws StreamWriteException, DatabindException, IOException {
-        ObjectMapper customMapper = new ObjectMapper();
-        customMapper.enable(SerializationFeature.INDENT_OUTPUT);
-        customMapper.registerModule(new JavaTimeModule());
-
-        SimpleModule module = new SimpleModule();
-        module.addSerializer(Hospital.class, new HospitalSerializer(comparator));
-        customMapper.registerModule(module);
-
-        customMapper.writeValue(new File(filePath), hospital);
+        if (comparator == null) {
+            saveToFile(hospital, filePath);
+            return;
+        }
+        AppointmentComparator order = AppointmentComparator.of(comparator);
+        ObjectWriter sorted = order == null ? writer.withAttribute(HospitalSerializer.COMPARATOR_ATTRIBUTE, comparator)
+                : sortedWriters.get(order);
+        sorted.writeValue(new File(filePath), hospital);
     }
 
     public void saveToFile(Hospital hospital, String filePath)
             throws StreamReadException, DatabindException, IOException {
-        mapper.writeValue(new File(filePath), hospital);
+        writer.writeValue(new File(filePath), hospital);
     }
 
     public Hospital loadFromFile(String filePath) throws StreamReadException, DatabindException, IOException {
         return mapper.readValue(new File(filePath), Hospital.class);
     }
+
+    public void saveBinary(Hospital hospital, String filePath) throws IOException {
+        try (OutputStream out = Files.newOutputStream(Path.of(filePath))) {
+            BinarySnapshot.write(hospital, out);
+        }
+    }
+
+    public Hospital loadBinary(String filePath) throws IOException {
+        return BinarySnapshot.read(ByteBuffer.wrap(Files.readAllBytes(Path.of(filePath))));
+    }
+
+    /**
+     * Maps a binary snapshot into memory and returns a hospital whose appointments are
+     * decoded only when a doctor's or patient's schedule is first used.
+     */
+    public Hospital loadMapped(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + channel.size() + " bytes");
+            }
+            return BinarySnapshot.readLazily(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Rebuilds the hospital from the last binary snapshot, if there is one, and the
+     * journal of the mutations made since.
+     */
+    public Hospital recover(String snapshotPath, String journalPath) throws IOException {
+        Hospital hospital = Files.exists(Path.of(snapshotPath)) ? loadBinary(snapshotPath) : new Hospital();
+        WriteAheadJournal.replay(Path.of(journalPath), hospital);
+        return hospital;
+    }
 }
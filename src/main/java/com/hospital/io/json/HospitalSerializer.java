@@ -1,20 +1,33 @@
 package com.hospital.io.json;
 
 import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.hospital.core.Appointment;
+import com.hospital.core.AppointmentArchive;
 import com.hospital.core.Doctor;
 import com.hospital.core.Hospital;
+import com.hospital.core.MedicalSpecialty;
 import com.hospital.core.Patient;
+import com.hospital.core.SlotPolicy;
+import com.hospital.core.WorkingCalendar;
 
 public class HospitalSerializer extends StdSerializer<Hospital> {
+    public static final int DEFAULT_MAX_APPOINTMENTS_IN_MEMORY = 100_000;
+    /**
+     * Writer attribute holding the {@code Comparator<Appointment>} used when the serializer
+     * itself has none, so one cached serializer can back differently sorted writers.
+     */
+    public static final String COMPARATOR_ATTRIBUTE = HospitalSerializer.class.getName() + ".comparator";
+
     private Comparator<Appointment> comparator = null;
+    private int maxAppointmentsInMemory = DEFAULT_MAX_APPOINTMENTS_IN_MEMORY;
 
     public HospitalSerializer() {
         super(Hospital.class);
@@ -33,10 +46,33 @@ public class HospitalSerializer extends StdSerializer<Hospital> {
         this.comparator = comparator;
     }
 
+    public int getMaxAppointmentsInMemory() {
+        return maxAppointmentsInMemory;
+    }
+
+    public void setMaxAppointmentsInMemory(int maxAppointmentsInMemory) {
+        if (maxAppointmentsInMemory < 1)
+            throw new IllegalArgumentException("At least one appointment must fit in memory");
+        this.maxAppointmentsInMemory = maxAppointmentsInMemory;
+    }
+
     @Override
     public void serialize(Hospital hospital, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+        Comparator<Appointment> comparator = resolveComparator(provider);
         jgen.writeStartObject();
 
+        // Written first so that the policies are in place before any appointment is booked.
+        jgen.writeFieldName("slotPolicies");
+        jgen.writeStartArray();
+        for (Map.Entry<MedicalSpecialty, SlotPolicy> entry : hospital.getSpecialtySlotPolicies().entrySet()) {
+            jgen.writeStartObject();
+            jgen.writeStringField("specialty", entry.getKey().name());
+            jgen.writeNumberField("slotMinutes", entry.getValue().getSlotMinutes());
+            jgen.writeNumberField("visitMinutes", entry.getValue().getVisitMinutes());
+            jgen.writeEndObject();
+        }
+        jgen.writeEndArray();
+
         jgen.writeFieldName("doctors");
         jgen.writeStartArray();
         for (Doctor doctor : hospital.getAllDoctors()) {
@@ -47,6 +83,14 @@ public class HospitalSerializer extends StdSerializer<Hospital> {
             jgen.writeStringField("specialization", doctor.getSpecialization().name());
             jgen.writeStringField("workStart", doctor.getWorkStart().toString());
             jgen.writeStringField("workEnd", doctor.getWorkEnd().toString());
+            if (doctor.getSlotPolicy() != null) {
+                jgen.writeNumberField("slotMinutes", doctor.getSlotPolicy().getSlotMinutes());
+                jgen.writeNumberField("visitMinutes", doctor.getSlotPolicy().getVisitMinutes());
+            }
+            if (doctor.getWorkingCalendar() != null) {
+                jgen.writeFieldName("calendar");
+                writeCalendar(doctor.getWorkingCalendar(), jgen);
+            }
             jgen.writeEndObject();
         }
         jgen.writeEndArray();
@@ -66,26 +110,73 @@ public class HospitalSerializer extends StdSerializer<Hospital> {
         jgen.writeFieldName("appointments");
         jgen.writeStartArray();
 
-        List<Appointment> appointments = hospital.getAllDoctors().stream()
-                .flatMap(doctor -> doctor.getAppointments().stream())
-                .collect(Collectors.toList());
+        if (comparator == null) {
+            for (Appointment appointment : hospital.getAllAppointments()) {
+                writeAppointment(appointment, jgen);
+            }
+        } else if (AppointmentComparator.of(comparator) != null) {
+            // The hospital keeps an index per predefined order, so this is a linear walk.
+            for (Appointment appointment : hospital.getAllAppointments(comparator)) {
+                writeAppointment(appointment, jgen);
+            }
+        } else {
+            try (ExternalAppointmentSorter sorter = new ExternalAppointmentSorter(hospital, comparator,
+                    maxAppointmentsInMemory)) {
+                for (Appointment appointment : hospital.getAllAppointments()) {
+                    sorter.add(appointment);
+                }
+                sorter.forEachSorted(appointment -> writeAppointment(appointment, jgen));
+            }
+        }
+        jgen.writeEndArray();
 
-        if (comparator != null) {
-            appointments.sort(comparator);
+        AppointmentArchive archive = hospital.getArchive();
+        if (archive != null) {
+            jgen.writeStringField("archivedBefore", archive.getCutoff().toString());
         }
 
-        for (Appointment appointment : appointments) {
+        jgen.writeEndObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparator<Appointment> resolveComparator(SerializerProvider provider) {
+        if (comparator != null || provider == null) {
+            return comparator;
+        }
+        return (Comparator<Appointment>) provider.getAttribute(COMPARATOR_ATTRIBUTE);
+    }
+
+    private static void writeCalendar(WorkingCalendar calendar, JsonGenerator jgen) throws IOException {
+        jgen.writeStartObject();
+        jgen.writeArrayFieldStart("weekdays");
+        for (DayOfWeek day : calendar.getWeekdays()) {
+            jgen.writeString(day.name());
+        }
+        jgen.writeEndArray();
+        jgen.writeArrayFieldStart("holidays");
+        for (LocalDate holiday : calendar.getHolidays()) {
+            jgen.writeString(holiday.toString());
+        }
+        jgen.writeEndArray();
+        jgen.writeArrayFieldStart("vacations");
+        for (LocalDate[] vacation : calendar.getVacations()) {
             jgen.writeStartObject();
-            jgen.writeNumberField("doctor", appointment.getDoctor().getId());
-            jgen.writeNumberField("patient", appointment.getPatient().getId());
-            jgen.writeStringField("date", appointment.getDate().toString());
-            jgen.writeStringField("status", appointment.getStatus().name());
-            jgen.writeStringField("start", appointment.getStart().toString());
-            jgen.writeStringField("end", appointment.getEnd().toString());
+            jgen.writeStringField("from", vacation[0].toString());
+            jgen.writeStringField("to", vacation[1].toString());
             jgen.writeEndObject();
         }
         jgen.writeEndArray();
+        jgen.writeEndObject();
+    }
 
+    private static void writeAppointment(Appointment appointment, JsonGenerator jgen) throws IOException {
+        jgen.writeStartObject();
+        jgen.writeNumberField("doctor", appointment.getDoctor().getId());
+        jgen.writeNumberField("patient", appointment.getPatient().getId());
+        jgen.writeStringField("date", appointment.getDate().toString());
+        jgen.writeStringField("status", appointment.getStatus().name());
+        jgen.writeStringField("start", appointment.getStart().toString());
+        jgen.writeStringField("end", appointment.getEnd().toString());
         jgen.writeEndObject();
     }
 }
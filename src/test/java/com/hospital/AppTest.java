@@ -3,21 +3,56 @@ package com.hospital;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hospital.core.Appointment;
+import com.hospital.core.AppointmentArchive;
+import com.hospital.core.BookingRequest;
+import com.hospital.core.BookingResult;
 import com.hospital.core.Doctor;
 import com.hospital.core.Hospital;
 import com.hospital.core.MedicalSpecialty;
+import com.hospital.core.NoAvailableSlotException;
 import com.hospital.core.Patient;
+import com.hospital.core.ReportFilter;
+import com.hospital.core.ReportRenderer;
+import com.hospital.core.SlotPolicy;
+import com.hospital.core.WorkingCalendar;
+import com.hospital.io.binary.BackgroundSnapshotter;
+import com.hospital.io.binary.WriteAheadJournal;
+import com.hospital.io.json.AppointmentComparator;
+import com.hospital.io.json.HospitalFileIO;
+import com.hospital.io.json.HospitalSerializer;
 
 public class AppTest {
     private Hospital hospital;
@@ -45,6 +80,23 @@ public class AppTest {
         assertNotEquals(patient.getId(), patient2.getId());
     }
 
+    @Test
+    void testIdsContinueAfterImportedOnes(@TempDir Path dir) throws IOException {
+        hospital.addPatient(new Patient(1_000_000L, "Олена", "Гринчук", LocalDate.of(1985, 5, 5)));
+        hospital.addDoctor(new Doctor(500L, "Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(10, 0), LocalTime.of(18, 0)));
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveToFile(hospital, dir.resolve("hospital.json").toString());
+
+        Hospital loaded = io.loadFromFile(dir.resolve("hospital.json").toString());
+        assertEquals(1_000_001L, loaded.createPatient("Петро", "Іваненко", LocalDate.of(2000, 1, 1)).getId());
+        assertEquals(501L, loaded.createDoctor("Олег", "Бондар", MedicalSpecialty.SURGEON,
+                LocalTime.of(9, 0), LocalTime.of(12, 0)).getId());
+
+        loaded.deletePatient(1_000_001L);
+        assertEquals(1_000_002L, loaded.createPatient("Петро", "Іваненко", LocalDate.of(2000, 1, 1)).getId());
+    }
+
     @Test
     void testAddAppointmentSuccessfully() {
         Appointment appointment = hospital.createNearestAvailableAppointment(patient, doctor);
@@ -53,6 +105,19 @@ public class AppTest {
         assertEquals(appointment, doctor.getAppointments().get(0));
     }
 
+    @Test
+    void testBookedAppointmentOnlyChangesStatus() {
+        Appointment appointment = hospital.createNearestAvailableAppointment(patient, doctor);
+        assertThrows(IllegalStateException.class, () -> appointment.setDate(appointment.getDate().plusDays(1)));
+        assertThrows(IllegalStateException.class, () -> appointment.setStart(LocalTime.MIDNIGHT));
+        assertThrows(IllegalStateException.class, () -> appointment.setEnd(LocalTime.MIDNIGHT));
+        assertThrows(IllegalStateException.class, () -> appointment.setDoctor(null));
+        assertThrows(IllegalStateException.class, () -> appointment.setPatient(null));
+        appointment.setStatus(Appointment.Status.CLOSED);
+        assertEquals(List.of(appointment), hospital.getAppointmentsWithStatus(Appointment.Status.CLOSED));
+        assertTrue(doctor.getAppointments().contains(appointment));
+    }
+
     @Test
     void testOverlappingAppointmentThrows() {
         Appointment a1 = hospital.createNearestAvailableAppointment(patient, doctor);
@@ -89,6 +154,41 @@ public class AppTest {
         assertFalse(hospital.getPatient(patient.getId()).isPresent());
     }
 
+    @Test
+    void testDeletionsRemoveAppointmentsFromTheOtherSide(@TempDir Path dir) throws IOException {
+        Doctor second = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        Patient other = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+        Appointment past = new Appointment(second, patient, LocalDate.now().minusDays(1),
+                LocalTime.of(9, 0), LocalTime.of(9, 30), Appointment.Status.CLOSED);
+        second.addAppointment(past);
+        patient.addAppointment(past);
+        hospital.archiveAppointmentsBefore(LocalDate.now());
+        Appointment kept = hospital.createNearestAvailableAppointment(other, doctor);
+        Appointment freed = hospital.createNearestAvailableAppointment(patient, doctor);
+        hospital.createNearestAvailableAppointment(patient, second);
+
+        hospital.deletePatient(patient.getId());
+        assertEquals(List.of(kept), doctor.getAppointments());
+        assertTrue(second.getAppointments().isEmpty());
+        assertTrue(patient.getAppointments().isEmpty());
+        assertTrue(doctor.canAcceptAppointment(freed));
+        assertEquals(List.of(kept), new ArrayList<>(hospital.getAllAppointments()));
+        assertThrows(NoSuchElementException.class, () -> hospital.createNearestAvailableAppointment(patient, doctor));
+
+        hospital.deleteDoctor(doctor.getId());
+        assertTrue(other.getAppointments().isEmpty());
+        assertTrue(hospital.getAllAppointments().isEmpty());
+
+        hospital.createNearestAvailableAppointment(other, second);
+        Path file = dir.resolve("hospital.json");
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveToFile(hospital, file.toString());
+        Hospital loaded = io.loadFromFile(file.toString());
+        assertEquals(second.getAppointments(),
+                loaded.getDoctor(second.getId()).orElseThrow().getAppointments());
+    }
+
     @Test
     void testFindDoctorsBySpecialty() {
         var list = hospital.findDoctorsBySpecialty(MedicalSpecialty.CARDIOLOGIST);
@@ -148,4 +248,874 @@ public class AppTest {
 
         assertThrows(IllegalStateException.class, () -> doctor.addAppointment(lateAppointment));
     }
+
+    @Test
+    void testScheduleKeepsAppointmentsInChronologicalOrder() {
+        Doctor doctor = new Doctor(1L, "Олена", "Петрова", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        LocalDate day = LocalDate.of(2030, 3, 1);
+        Appointment afternoon = new Appointment(doctor, null, day,
+                LocalTime.of(14, 0), LocalTime.of(14, 30), Appointment.Status.ACTIVE);
+        Appointment morning = new Appointment(doctor, null, day,
+                LocalTime.of(9, 0), LocalTime.of(9, 30), Appointment.Status.ACTIVE);
+        Appointment previousDay = new Appointment(doctor, null, day.minusDays(1),
+                LocalTime.of(16, 0), LocalTime.of(16, 30), Appointment.Status.ACTIVE);
+
+        doctor.addAppointment(afternoon);
+        doctor.addAppointment(morning);
+        doctor.addAppointment(previousDay);
+
+        assertEquals(List.of(previousDay, morning, afternoon), doctor.getAppointments());
+        assertFalse(doctor.canAcceptAppointment(new Appointment(doctor, null, day,
+                LocalTime.of(13, 45), LocalTime.of(14, 0), Appointment.Status.ACTIVE)));
+        assertTrue(doctor.canAcceptAppointment(new Appointment(doctor, null, day,
+                LocalTime.of(10, 0), LocalTime.of(13, 30), Appointment.Status.ACTIVE)));
+    }
+
+    @Test
+    void testSpecialtyIndexAgreesWithScanAfterRandomMutations() {
+        Random random = new Random(7);
+        MedicalSpecialty[] specialties = MedicalSpecialty.values();
+        List<Long> ids = new ArrayList<>(List.of(doctor.getId()));
+
+        for (int step = 0; step < 2000; step++) {
+            MedicalSpecialty specialty = specialties[random.nextInt(specialties.length)];
+            switch (random.nextInt(4)) {
+                case 0 -> ids.add(hospital.createDoctor("Лікар", "№" + step, specialty,
+                        LocalTime.of(9, 0), LocalTime.of(17, 0)).getId());
+                case 1 -> {
+                    long id = 1000L + random.nextInt(50);
+                    hospital.addDoctor(new Doctor(id, "Лікар", "№" + id, specialty,
+                            LocalTime.of(8, 0), LocalTime.of(16, 0)));
+                    ids.add(id);
+                }
+                case 2 -> {
+                    if (!ids.isEmpty()) {
+                        long id = ids.remove(random.nextInt(ids.size()));
+                        if (hospital.getDoctor(id).isPresent()) {
+                            hospital.deleteDoctor(id);
+                        }
+                    }
+                }
+                default -> {
+                    if (!ids.isEmpty()) {
+                        hospital.getDoctor(ids.get(random.nextInt(ids.size())))
+                                .ifPresent(existing -> existing.setSpecialization(specialty));
+                    }
+                }
+            }
+
+            for (MedicalSpecialty checked : specialties) {
+                Set<Doctor> scanned = hospital.getAllDoctors().stream()
+                        .filter(d -> d.getSpecialization() == checked)
+                        .collect(Collectors.toSet());
+                assertEquals(scanned, new HashSet<>(hospital.findDoctorsBySpecialty(checked)));
+            }
+        }
+    }
+
+    @Test
+    void testJsonRoundTripRestoresAppointments(@TempDir Path dir) throws IOException {
+        Appointment booked = hospital.createNearestAvailableAppointment(patient, doctor);
+        Path file = dir.resolve("hospital.json");
+
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveToFile(hospital, file.toString());
+        Hospital loaded = io.loadFromFile(file.toString());
+
+        Doctor loadedDoctor = loaded.getDoctor(doctor.getId()).orElseThrow();
+        Patient loadedPatient = loaded.getPatient(patient.getId()).orElseThrow();
+        assertEquals(doctor.getSpecialization(), loadedDoctor.getSpecialization());
+        assertEquals(patient.getDateOfBirth(), loadedPatient.getDateOfBirth());
+        assertEquals(List.of(booked), loadedDoctor.getAppointments());
+        assertEquals(List.of(booked), loadedPatient.getAppointments());
+    }
+
+    @Test
+    void testBinarySnapshotRoundTrip(@TempDir Path dir) throws IOException {
+        Patient nameless = hospital.createPatient(null, "Гринчук", null);
+        Doctor surgeon = hospital.createDoctor("Марія", "Іванов", MedicalSpecialty.SURGEON,
+                LocalTime.of(8, 15), LocalTime.of(12, 0));
+        for (int i = 0; i < 10; i++) {
+            hospital.createNearestAvailableAppointment(i % 2 == 0 ? patient : nameless, i % 3 == 0 ? doctor : surgeon);
+        }
+        Appointment past = new Appointment(doctor, nameless, LocalDate.of(2001, 9, 11),
+                LocalTime.of(9, 0), LocalTime.of(9, 45), Appointment.Status.CLOSED);
+        doctor.addAppointment(past);
+        nameless.addAppointment(past);
+        Appointment precise = new Appointment(doctor, nameless, LocalDate.of(2002, 1, 1),
+                LocalTime.of(10, 0, 30), LocalTime.of(10, 20, 15, 500), null);
+        doctor.addAppointment(precise);
+        nameless.addAppointment(precise);
+        surgeon.setWorkEnd(LocalTime.of(12, 0, 1));
+        Path file = dir.resolve("hospital.bin");
+
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, file.toString());
+        Hospital loaded = io.loadBinary(file.toString());
+
+        for (Doctor original : hospital.getAllDoctors()) {
+            Doctor copy = loaded.getDoctor(original.getId()).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.getAppointments(), copy.getAppointments());
+            for (int i = 0; i < original.getAppointments().size(); i++) {
+                assertEquals(original.getAppointments().get(i).getStatus(), copy.getAppointments().get(i).getStatus());
+            }
+        }
+        for (Patient original : hospital.getAllPatients()) {
+            Patient copy = loaded.getPatient(original.getId()).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.getAppointments(), copy.getAppointments());
+        }
+
+        Appointment loadedPast = loaded.getDoctor(doctor.getId()).orElseThrow().getAppointments().get(0);
+        assertThrows(IllegalStateException.class, () -> loadedPast.setDate(LocalDate.now()));
+        assertEquals(hospital.getAllAppointments().size(), loaded.getAllAppointments().size());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[4]++;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> io.loadBinary(file.toString()));
+    }
+
+    @Test
+    void testMappedSnapshotMaterializesAppointmentsOnFirstUse(@TempDir Path dir) throws IOException {
+        Doctor surgeon = hospital.createDoctor("Марія", "Іванов", MedicalSpecialty.SURGEON,
+                LocalTime.of(8, 0), LocalTime.of(12, 0));
+        for (int i = 0; i < 12; i++) {
+            hospital.createNearestAvailableAppointment(patient, i % 2 == 0 ? doctor : surgeon);
+        }
+        Path file = dir.resolve("hospital.bin");
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, file.toString());
+
+        Hospital loaded = io.loadMapped(file.toString());
+        Patient lazyPatient = loaded.getPatient(patient.getId()).orElseThrow();
+        assertEquals(patient.toString(), lazyPatient.toString());
+        assertEquals(patient.getAppointments(), lazyPatient.getAppointments());
+        for (Appointment appointment : lazyPatient.getAppointments()) {
+            Doctor owner = loaded.getDoctor(appointment.getDoctor().getId()).orElseThrow();
+            assertSame(owner, appointment.getDoctor());
+            assertTrue(owner.getAppointments().stream().anyMatch(other -> other == appointment));
+        }
+        for (Doctor original : hospital.getAllDoctors()) {
+            assertEquals(original.getAppointments(), loaded.getDoctor(original.getId()).orElseThrow().getAppointments());
+        }
+
+        Hospital eager = io.loadBinary(file.toString());
+        assertEquals(patient.getAppointments(), eager.getPatient(patient.getId()).orElseThrow().getAppointments());
+
+        Appointment next = loaded.createNearestAvailableAppointment(lazyPatient,
+                loaded.getDoctor(surgeon.getId()).orElseThrow());
+        assertEquals(hospital.createNearestAvailableAppointment(patient, surgeon), next);
+    }
+
+    @Test
+    void testJournalRecoversMutationsMadeAfterTheSnapshot(@TempDir Path dir) throws IOException {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        HospitalFileIO io = new HospitalFileIO();
+        hospital.createNearestAvailableAppointment(patient, doctor);
+        io.saveBinary(hospital, snapshot.toString());
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            hospital.setMutationListener(wal);
+            Patient added = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+            Doctor surgeon = hospital.createDoctor("Марія", "Іванов", MedicalSpecialty.SURGEON,
+                    LocalTime.of(8, 0), LocalTime.of(12, 0));
+            hospital.createNearestAvailableAppointment(added, surgeon);
+            hospital.createNearestAvailableAppointment(patient, surgeon);
+            hospital.updatePatient(patient.getId(), null, "Шевчук", null);
+            hospital.updateDoctor(surgeon.getId(), null, null, LocalTime.of(7, 30), null);
+            Patient temporary = hospital.createPatient("Тимчасовий", null, null);
+            hospital.deletePatient(temporary.getId());
+        }
+        Files.write(journal, new byte[] { 42, 1, 2 }, StandardOpenOption.APPEND);
+
+        Hospital recovered = io.recover(snapshot.toString(), journal.toString());
+        assertEquals(hospital.getAllPatients().size(), recovered.getAllPatients().size());
+        for (Patient original : hospital.getAllPatients()) {
+            Patient copy = recovered.getPatient(original.getId()).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.getAppointments(), copy.getAppointments());
+        }
+        for (Doctor original : hospital.getAllDoctors()) {
+            Doctor copy = recovered.getDoctor(original.getId()).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.getAppointments(), copy.getAppointments());
+        }
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            recovered.setMutationListener(wal);
+            recovered.createPatient("Новий", "Пацієнт", null);
+        }
+        assertEquals(recovered.getAllPatients().size(),
+                io.recover(snapshot.toString(), journal.toString()).getAllPatients().size());
+    }
+
+    @Test
+    void testJournalRecoversDoctorAndSpecialtySettings(@TempDir Path dir) throws IOException {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        HospitalFileIO io = new HospitalFileIO();
+        hospital.setSlotPolicy(MedicalSpecialty.NEUROLOGIST, new SlotPolicy(20, 20));
+        io.saveBinary(hospital, snapshot.toString());
+
+        WorkingCalendar calendar = new WorkingCalendar(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY))
+                .withHolidays(List.of(LocalDate.now().plusDays(10)));
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            hospital.setMutationListener(wal);
+            doctor.setSpecialization(MedicalSpecialty.DERMATOLOGIST);
+            doctor.setSlotPolicy(new SlotPolicy(15, 45));
+            doctor.setWorkingCalendar(calendar);
+            hospital.setSlotPolicy(MedicalSpecialty.SURGEON, new SlotPolicy(5, 10));
+            hospital.setSlotPolicy(MedicalSpecialty.NEUROLOGIST, null);
+        }
+
+        Hospital recovered = io.recover(snapshot.toString(), journal.toString());
+        Doctor copy = recovered.getDoctor(doctor.getId()).orElseThrow();
+        assertEquals(MedicalSpecialty.DERMATOLOGIST, copy.getSpecialization());
+        assertEquals(List.of(copy), recovered.findDoctorsBySpecialty(MedicalSpecialty.DERMATOLOGIST));
+        assertTrue(recovered.findDoctorsBySpecialty(MedicalSpecialty.CARDIOLOGIST).isEmpty());
+        assertEquals(new SlotPolicy(15, 45), copy.getSlotPolicy());
+        assertEquals(calendar, copy.getWorkingCalendar());
+        assertEquals(Map.of(MedicalSpecialty.SURGEON, new SlotPolicy(5, 10)), recovered.getSpecialtySlotPolicies());
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            recovered.setMutationListener(wal);
+            copy.setSlotPolicy(null);
+            copy.setWorkingCalendar(null);
+        }
+        copy = io.recover(snapshot.toString(), journal.toString()).getDoctor(doctor.getId()).orElseThrow();
+        assertEquals(null, copy.getSlotPolicy());
+        assertEquals(null, copy.getWorkingCalendar());
+    }
+
+    @Test
+    void testJournalRecoversStatusChangesAndArchiving(@TempDir Path dir) throws IOException {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        HospitalFileIO io = new HospitalFileIO();
+        LocalDate today = LocalDate.now();
+        LocalDate lastYear = today.minusYears(1);
+        Appointment past = new Appointment(doctor, patient, lastYear, LocalTime.of(9, 15), LocalTime.of(9, 45),
+                Appointment.Status.ACTIVE);
+        doctor.addAppointment(past);
+        patient.addAppointment(past);
+        Appointment upcoming = hospital.createNearestAvailableAppointment(patient, doctor);
+        io.saveBinary(hospital, snapshot.toString());
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            hospital.setMutationListener(wal);
+            hospital.archiveAppointmentsBefore(today);
+            doctor.getAppointments().get(0).setStatus(Appointment.Status.CLOSED);
+            upcoming.setStatus(Appointment.Status.CANCELLED);
+            hospital.archiveAppointmentsBefore(lastYear);
+        }
+        assertEquals(today, hospital.getArchive().getCutoff());
+
+        Hospital recovered = io.recover(snapshot.toString(), journal.toString());
+        assertEquals(today, recovered.getArchive().getCutoff());
+        assertEquals(1, recovered.getArchive().size());
+        List<Appointment> appointments = recovered.getDoctor(doctor.getId()).orElseThrow().getAppointments();
+        assertEquals(doctor.getAppointments(), appointments);
+        assertEquals(Appointment.Status.CLOSED, appointments.get(0).getStatus());
+        assertEquals(Appointment.Status.CANCELLED, appointments.get(1).getStatus());
+        assertEquals(List.of(appointments.get(1)), recovered.getAppointmentsWithStatus(Appointment.Status.CANCELLED));
+
+        io.saveToFile(recovered, dir.resolve("hospital.json").toString());
+        io.saveBinary(recovered, dir.resolve("recovered.bin").toString());
+        for (Hospital loaded : List.of(io.loadFromFile(dir.resolve("hospital.json").toString()),
+                io.loadBinary(dir.resolve("recovered.bin").toString()))) {
+            assertEquals(today, loaded.getArchive().getCutoff());
+            assertEquals(1, loaded.getArchive().size());
+            assertEquals(Appointment.Status.CLOSED,
+                    loaded.getPatient(patient.getId()).orElseThrow().getAppointments().get(0).getStatus());
+        }
+    }
+
+    @Test
+    void testSnapshotsTakenDuringBookingRecoverTheLatestState(@TempDir Path dir) throws Exception {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            patients.add(hospital.createPatient("Пацієнт", String.valueOf(i), null));
+        }
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal);
+                BackgroundSnapshotter snapshotter = new BackgroundSnapshotter(hospital, snapshot, wal)) {
+            hospital.setMutationListener(wal);
+            Thread booking = new Thread(() -> {
+                for (int i = 0; i < 400; i++) {
+                    hospital.createNearestAvailableAppointment(patients.get(i % patients.size()), doctor);
+                }
+            });
+            booking.start();
+            while (booking.isAlive()) {
+                snapshotter.snapshot();
+            }
+            booking.join();
+            hospital.updatePatient(patient.getId(), "Оновлений", null, null);
+        }
+        assertFalse(Files.exists(dir.resolve("hospital.bin.tmp")));
+
+        Hospital recovered = new HospitalFileIO().recover(snapshot.toString(), journal.toString());
+        for (Patient original : hospital.getAllPatients()) {
+            Patient copy = recovered.getPatient(original.getId()).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.getAppointments(), copy.getAppointments());
+        }
+        assertEquals(doctor.getAppointments(), recovered.getDoctor(doctor.getId()).orElseThrow().getAppointments());
+        assertThrows(NullPointerException.class, () -> new BackgroundSnapshotter(hospital, snapshot, null));
+    }
+
+    @Test
+    void testJournalRecoversConcurrentCreationAndBooking(@TempDir Path dir) throws Exception {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, snapshot.toString());
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            hospital.setMutationListener(wal);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        Patient created = hospital.createPatient("Пацієнт", String.valueOf(i), null);
+                        hospital.createNearestAvailableAppointment(created, doctor);
+                        if (i % 10 == 0) {
+                            hospital.deletePatient(created.getId());
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        Hospital recovered = io.recover(snapshot.toString(), journal.toString());
+        assertEquals(hospital.getAllPatients().size(), recovered.getAllPatients().size());
+        for (Patient original : hospital.getAllPatients()) {
+            assertEquals(original.getAppointments(),
+                    recovered.getPatient(original.getId()).orElseThrow().getAppointments());
+        }
+        assertEquals(doctor.getAppointments(), recovered.getDoctor(doctor.getId()).orElseThrow().getAppointments());
+    }
+
+    @Test
+    void testJournalReplayRejectsBookingsForUnknownPatients(@TempDir Path dir) throws IOException {
+        Path snapshot = dir.resolve("hospital.bin");
+        Path journal = dir.resolve("hospital.wal");
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, snapshot.toString());
+        Patient unlogged = hospital.createPatient("Без", "Запису", null);
+
+        try (WriteAheadJournal wal = WriteAheadJournal.open(journal)) {
+            hospital.setMutationListener(wal);
+            hospital.createNearestAvailableAppointment(unlogged, doctor);
+        }
+        assertThrows(IOException.class, () -> io.recover(snapshot.toString(), journal.toString()));
+    }
+
+    @Test
+    void testBatchBookingMatchesOneByOneBooking() {
+        Hospital sequential = new Hospital();
+        for (Hospital target : List.of(hospital, sequential)) {
+            if (target == sequential) {
+                target.createDoctor("Іван", "Іванов", MedicalSpecialty.CARDIOLOGIST, LocalTime.of(9, 0), LocalTime.of(17, 0));
+                target.createPatient("Петро", "Петренко", LocalDate.of(1990, 1, 1));
+            }
+            target.createDoctor("Марія", "Коваленко", MedicalSpecialty.CARDIOLOGIST, LocalTime.of(8, 0), LocalTime.of(11, 0));
+            target.createDoctor("Олег", "Бондар", MedicalSpecialty.SURGEON, LocalTime.of(12, 0), LocalTime.of(14, 30));
+            for (int i = 0; i < 30; i++) {
+                target.createPatient("Пацієнт", String.valueOf(i), null);
+            }
+        }
+
+        Random random = new Random(7);
+        List<BookingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Patient requester = hospital.getPatient(1L + random.nextInt(31)).orElseThrow();
+            int choice = random.nextInt(4);
+            batch.add(choice < 3 ? new BookingRequest(requester, hospital.getDoctor(1 + choice).orElseThrow())
+                    : new BookingRequest(requester, MedicalSpecialty.CARDIOLOGIST));
+        }
+        batch.add(new BookingRequest(null, doctor));
+        batch.add(new BookingRequest(patient, MedicalSpecialty.PEDIATRICIAN));
+
+        List<BookingResult> results = hospital.createNearestAvailableAppointments(batch);
+        assertEquals(batch.size(), results.size());
+        for (int i = 0; i < 300; i++) {
+            Appointment booked = results.get(i).getAppointment();
+            assertTrue(results.get(i).isBooked());
+            if (batch.get(i).getSpecialty() != null) {
+                assertEquals(MedicalSpecialty.CARDIOLOGIST, booked.getDoctor().getSpecialization());
+            }
+            Appointment one = sequential.createNearestAvailableAppointment(
+                    sequential.getPatient(booked.getPatient().getId()).orElseThrow(),
+                    sequential.getDoctor(booked.getDoctor().getId()).orElseThrow());
+            assertEquals(describe(one), describe(booked));
+        }
+        assertTrue(results.get(300).getFailure() instanceof IllegalArgumentException);
+        assertTrue(results.get(301).getFailure() instanceof NoSuchElementException);
+    }
+
+    @Test
+    void testBatchBookingSendsSpecialtyRequestsToTheEarliestDoctor() {
+        Doctor shortDay = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.CARDIOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(10, 0));
+        List<BookingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            batch.add(new BookingRequest(hospital.createPatient("Пацієнт", String.valueOf(i), null),
+                    MedicalSpecialty.CARDIOLOGIST));
+        }
+
+        List<BookingResult> results = hospital.createNearestAvailableAppointments(batch);
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        // Default visits fill the grid, so the one-hour day of shortDay fits two of them.
+        String[] expected = { doctor.getId() + " 09:00", shortDay.getId() + " 09:00",
+                doctor.getId() + " 09:30", shortDay.getId() + " 09:30" };
+        for (int i = 0; i < expected.length; i++) {
+            Appointment booked = results.get(i).getAppointment();
+            assertEquals(tomorrow, booked.getDate());
+            assertEquals(expected[i], booked.getDoctor().getId() + " " + booked.getStart());
+        }
+    }
+
+    private static String describe(Appointment appointment) {
+        return appointment.getDoctor().getId() + "/" + appointment.getPatient().getId() + " "
+                + appointment.getDate() + " " + appointment.getStart();
+    }
+
+    @Test
+    void testEarliestAppointmentAcrossSpecialty() {
+        for (int i = 0; i < 8; i++) {
+            hospital.createNearestAvailableAppointment(hospital.createPatient("Пацієнт", String.valueOf(i), null), doctor);
+        }
+        Doctor afternoon = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.CARDIOLOGIST,
+                LocalTime.of(12, 0), LocalTime.of(18, 0));
+        Doctor alsoAfternoon = hospital.createDoctor("Олег", "Бондар", MedicalSpecialty.CARDIOLOGIST,
+                LocalTime.of(12, 0), LocalTime.of(13, 0));
+        hospital.createDoctor("Ірина", "Мельник", MedicalSpecialty.SURGEON, LocalTime.of(6, 0), LocalTime.of(8, 0));
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        Appointment first = hospital.createEarliestAppointment(patient, MedicalSpecialty.CARDIOLOGIST);
+        assertSame(afternoon, first.getDoctor());
+        assertEquals(tomorrow.atTime(12, 0), first.getDate().atTime(first.getStart()));
+
+        Patient other = hospital.createPatient("Олена", "Гринчук", null);
+        Appointment second = hospital.createEarliestAppointment(other, MedicalSpecialty.CARDIOLOGIST);
+        assertSame(alsoAfternoon, second.getDoctor());
+        assertEquals(tomorrow.atTime(12, 0), second.getDate().atTime(second.getStart()));
+
+        Appointment third = hospital.createEarliestAppointment(patient, MedicalSpecialty.CARDIOLOGIST);
+        assertEquals(tomorrow.atTime(12, 30), third.getDate().atTime(third.getStart()));
+        assertTrue(third.getDoctor() == afternoon || third.getDoctor() == alsoAfternoon);
+
+        assertThrows(NoSuchElementException.class,
+                () -> hospital.createEarliestAppointment(patient, MedicalSpecialty.PEDIATRICIAN));
+    }
+
+    @Test
+    void testEarliestAppointmentBeyondTheNextWeek() {
+        hospital.deleteDoctor(doctor.getId());
+        Doctor[] busy = new Doctor[3];
+        int[] bookedDays = { 12, 10, 10 };
+        for (int d = 0; d < busy.length; d++) {
+            busy[d] = hospital.createDoctor("Лікар", String.valueOf(d), MedicalSpecialty.CARDIOLOGIST,
+                    LocalTime.of(9, 0), LocalTime.of(9, 30));
+            for (int i = 0; i < bookedDays[d]; i++) {
+                hospital.createNearestAvailableAppointment(hospital.createPatient("Пацієнт", null, null), busy[d]);
+            }
+        }
+
+        Appointment earliest = hospital.createEarliestAppointment(patient, MedicalSpecialty.CARDIOLOGIST);
+        assertSame(busy[1], earliest.getDoctor());
+        assertEquals(LocalDate.now().plusDays(11), earliest.getDate());
+    }
+
+    @Test
+    void testDefaultSlotPolicyFillsTheGrid() {
+        Doctor morning = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.SURGEON,
+                LocalTime.of(9, 0), LocalTime.of(11, 0));
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        List<String> visits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Appointment booked = hospital.createNearestAvailableAppointment(
+                    hospital.createPatient("Пацієнт", String.valueOf(i), null), morning);
+            visits.add(booked.getDate().equals(tomorrow) + " " + booked.getStart() + "-" + booked.getEnd());
+        }
+        // Four half-hour slots fit the two-hour day; the fifth visit moves to the next day.
+        assertEquals(List.of("true 09:00-09:29", "true 09:30-09:59", "true 10:00-10:29", "true 10:30-10:59",
+                "false 09:00-09:29"), visits);
+    }
+
+    @Test
+    void testSlotPoliciesPerSpecialtyAndDoctor(@TempDir Path dir) throws IOException {
+        Doctor dermatologist = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(12, 0));
+        hospital.setSlotPolicy(MedicalSpecialty.DERMATOLOGIST, new SlotPolicy(5, 10));
+        doctor.setSlotPolicy(new SlotPolicy(15, 45));
+        assertEquals(SlotPolicy.DEFAULT, hospital.getSlotPolicy(
+                hospital.createDoctor("Олег", "Бондар", MedicalSpecialty.SURGEON, LocalTime.of(9, 0), LocalTime.of(12, 0))));
+
+        List<String> visits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Patient visitor = hospital.createPatient("Пацієнт", String.valueOf(i), LocalDate.of(2000, 1, 1));
+            Appointment check = hospital.createNearestAvailableAppointment(visitor, dermatologist);
+            Appointment consultation = hospital.createNearestAvailableAppointment(visitor, doctor);
+            visits.add(check.getStart() + "-" + check.getEnd() + " " + consultation.getStart() + "-" + consultation.getEnd());
+        }
+        assertEquals(List.of("09:00-09:10 09:15-10:00", "09:15-09:25 10:15-11:00", "09:30-09:40 11:15-12:00"), visits);
+
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveToFile(hospital, dir.resolve("hospital.json").toString());
+        io.saveBinary(hospital, dir.resolve("hospital.bin").toString());
+        for (Hospital loaded : List.of(io.loadFromFile(dir.resolve("hospital.json").toString()),
+                io.loadBinary(dir.resolve("hospital.bin").toString()))) {
+            assertEquals(new SlotPolicy(15, 45), loaded.getDoctor(doctor.getId()).orElseThrow().getSlotPolicy());
+            assertEquals(null, loaded.getDoctor(dermatologist.getId()).orElseThrow().getSlotPolicy());
+            assertEquals(Map.of(MedicalSpecialty.DERMATOLOGIST, new SlotPolicy(5, 10)),
+                    loaded.getSpecialtySlotPolicies());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new SlotPolicy(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlotPolicy(10, 24 * 60));
+    }
+
+    @Test
+    void testBookingSkipsDaysOffInTheWorkingCalendar(@TempDir Path dir) throws IOException {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        Set<DayOfWeek> weekdays = EnumSet.allOf(DayOfWeek.class);
+        weekdays.remove(tomorrow.getDayOfWeek());
+        WorkingCalendar calendar = new WorkingCalendar(weekdays)
+                .withHolidays(List.of(tomorrow.plusDays(1)))
+                .withVacation(tomorrow.plusDays(2), tomorrow.plusDays(4));
+        doctor.setWorkingCalendar(calendar);
+
+        assertEquals(tomorrow.plusDays(5), hospital.createNearestAvailableAppointment(patient, doctor).getDate());
+        assertFalse(calendar.isWorkingDay(tomorrow.plusDays(7)));
+
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveToFile(hospital, dir.resolve("hospital.json").toString());
+        io.saveBinary(hospital, dir.resolve("hospital.bin").toString());
+        for (Hospital loaded : List.of(io.loadFromFile(dir.resolve("hospital.json").toString()),
+                io.loadBinary(dir.resolve("hospital.bin").toString()))) {
+            assertEquals(calendar, loaded.getDoctor(doctor.getId()).orElseThrow().getWorkingCalendar());
+        }
+    }
+
+    @Test
+    void testBookingFailsFastWithoutAFreeSlotWithinTheHorizon() {
+        hospital.setSearchHorizonDays(3);
+        Doctor single = hospital.createDoctor("Олена", "Шевченко", MedicalSpecialty.NEUROLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(9, 30));
+        for (int i = 0; i < 3; i++) {
+            hospital.createNearestAvailableAppointment(hospital.createPatient("Пацієнт", null, null), single);
+        }
+        assertThrows(NoAvailableSlotException.class, () -> hospital.createNearestAvailableAppointment(patient, single));
+        assertThrows(NoAvailableSlotException.class,
+                () -> hospital.createEarliestAppointment(patient, MedicalSpecialty.NEUROLOGIST));
+        List<BookingResult> results = hospital.createNearestAvailableAppointments(List.of(
+                new BookingRequest(patient, single), new BookingRequest(patient, MedicalSpecialty.NEUROLOGIST)));
+        assertTrue(results.stream().allMatch(result -> result.getFailure() instanceof NoAvailableSlotException));
+
+        hospital.setSearchHorizonDays(Hospital.DEFAULT_SEARCH_HORIZON_DAYS);
+        Doctor shortShift = hospital.createDoctor("Андрій", "Мельник", MedicalSpecialty.SURGEON,
+                LocalTime.of(9, 0), LocalTime.of(9, 20));
+        assertThrows(NoAvailableSlotException.class, () -> hospital.createNearestAvailableAppointment(patient, shortShift));
+        doctor.setWorkingCalendar(new WorkingCalendar(EnumSet.noneOf(DayOfWeek.class)));
+        assertThrows(NoAvailableSlotException.class, () -> hospital.createNearestAvailableAppointment(patient, doctor));
+        assertThrows(IllegalArgumentException.class, () -> hospital.setSearchHorizonDays(0));
+    }
+
+    @Test
+    void testArchivedAppointmentsKeepTheirHistory(@TempDir Path dir) throws IOException {
+        Patient other = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+        LocalDate lastYear = LocalDate.now().minusYears(1).withDayOfYear(1);
+        for (int day = 0; day < 40; day++) {
+            Patient visitor = day % 2 == 0 ? patient : other;
+            // One visit has seconds, which the archive keeps as well.
+            Appointment past = new Appointment(doctor, visitor, lastYear.plusDays(day * 7),
+                    LocalTime.of(9, 15, day == 5 ? 30 : 0), LocalTime.of(9, 45), Appointment.Status.CLOSED);
+            doctor.addAppointment(past);
+            visitor.addAppointment(past);
+        }
+        hospital.createNearestAvailableAppointment(patient, doctor);
+        List<Appointment> before = new ArrayList<>(doctor.getAppointments());
+        List<Appointment> patientBefore = new ArrayList<>(patient.getAppointments());
+        long countBefore = patient.countAppointmentsInYear(lastYear.getYear());
+
+        AppointmentArchive archive = hospital.archiveAppointmentsBefore(LocalDate.now());
+        assertEquals(40, archive.size());
+        assertEquals(before, doctor.getAppointments());
+        assertEquals(patientBefore, patient.getAppointments());
+        assertEquals(countBefore, patient.countAppointmentsInYear(lastYear.getYear()));
+        assertEquals(describe(before.get(3)), describe(doctor.getAppointments().get(3)));
+
+        Appointment archived = patient.getAppointments().get(0);
+        archived.setStatus(Appointment.Status.CANCELLED);
+        assertEquals(Appointment.Status.CANCELLED, patient.getAppointments().get(0).getStatus());
+        assertThrows(UnsupportedOperationException.class, () -> archived.setDate(LocalDate.now()));
+        assertFalse(doctor.canAcceptAppointment(new Appointment(doctor, patient, lastYear,
+                LocalTime.of(9, 30), LocalTime.of(10, 0), Appointment.Status.ACTIVE)));
+        assertThrows(IllegalStateException.class, () -> doctor.addAppointment(new Appointment(doctor, patient,
+                lastYear, LocalTime.of(11, 0), LocalTime.of(11, 30), Appointment.Status.ACTIVE)));
+        assertThrows(IllegalArgumentException.class,
+                () -> hospital.archiveAppointmentsBefore(LocalDate.now().plusDays(1)));
+
+        assertEquals(40, hospital.archiveAppointmentsBefore(LocalDate.now()).size());
+        assertEquals(before, doctor.getAppointments());
+
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, dir.resolve("hospital.bin").toString());
+        Hospital loaded = io.loadBinary(dir.resolve("hospital.bin").toString());
+        assertEquals(before, loaded.getDoctor(doctor.getId()).orElseThrow().getAppointments());
+    }
+
+    @Test
+    void testDateRangeQueriesMatchAFullScan() {
+        Random random = new Random(5);
+        Doctor second = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        LocalDate origin = LocalDate.now().minusYears(2);
+        for (int i = 0; i < 300; i++) {
+            Doctor owner = random.nextBoolean() ? doctor : second;
+            Appointment visit = new Appointment(owner, patient, origin.plusDays(random.nextInt(900)),
+                    LocalTime.of(9 + random.nextInt(8), 0), null, Appointment.Status.CLOSED);
+            visit.setEnd(visit.getStart().plusMinutes(30));
+            if (owner.canAcceptAppointment(visit) && patient.canAcceptAppointment(visit)) {
+                owner.addAppointment(visit);
+                patient.addAppointment(visit);
+            }
+        }
+        hospital.archiveAppointmentsBefore(LocalDate.now().minusYears(1));
+
+        for (int i = 0; i < 50; i++) {
+            LocalDate from = origin.plusDays(random.nextInt(900));
+            LocalDate to = from.plusDays(random.nextInt(200));
+            List<Appointment> expected = patient.getAppointments().stream()
+                    .filter(a -> !a.getDate().isBefore(from) && a.getDate().isBefore(to))
+                    .collect(Collectors.toList());
+            assertEquals(expected, patient.getAppointmentsBetween(from, to));
+            assertEquals(expected.size(), patient.countAppointmentsBetween(from, to));
+            assertEquals(expected, hospital.getAppointmentsBetween(from, to));
+            assertEquals(expected.size(), hospital.countAppointmentsBetween(from, to));
+        }
+        for (int year = origin.getYear(); year <= LocalDate.now().getYear() + 1; year++) {
+            int y = year;
+            assertEquals(patient.getAppointments().stream().filter(a -> a.getDate().getYear() == y).count(),
+                    patient.countAppointmentsInYear(year));
+        }
+    }
+
+    @Test
+    void testHospitalWideIndexFollowsBookingsAndStatusChanges(@TempDir Path dir) throws IOException {
+        Doctor second = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        Appointment past = new Appointment(second, patient, LocalDate.now().minusDays(2),
+                LocalTime.of(9, 0), LocalTime.of(9, 30), Appointment.Status.CLOSED);
+        second.addAppointment(past);
+        patient.addAppointment(past);
+        for (int i = 0; i < 20; i++) {
+            Appointment booked = hospital.createNearestAvailableAppointment(patient, i % 2 == 0 ? doctor : second);
+            if (i % 3 == 0) {
+                booked.setStatus(Appointment.Status.CANCELLED);
+            }
+        }
+        hospital.archiveAppointmentsBefore(LocalDate.now());
+        hospital.getAllAppointments().iterator().next().setStatus(Appointment.Status.CANCELLED);
+
+        List<Appointment> scan = new ArrayList<>();
+        hospital.getAllDoctors().forEach(owner -> scan.addAll(owner.getAppointments()));
+        assertEquals(new HashSet<>(scan), new HashSet<>(hospital.getAllAppointments()));
+        assertEquals(scan.size(), hospital.getAllAppointments().size());
+        for (Appointment.Status status : Appointment.Status.values()) {
+            assertEquals(scan.stream().filter(a -> a.getStatus() == status).collect(Collectors.toSet()),
+                    new HashSet<>(hospital.getAppointmentsWithStatus(status)));
+        }
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        assertEquals(scan.stream().filter(a -> a.getDate().equals(tomorrow)).collect(Collectors.toSet()),
+                new HashSet<>(hospital.getAppointmentsBetween(tomorrow, tomorrow.plusDays(1))));
+
+        Path file = dir.resolve("hospital.bin");
+        HospitalFileIO io = new HospitalFileIO();
+        io.saveBinary(hospital, file.toString());
+        Hospital loaded = io.loadMapped(file.toString());
+        assertEquals(scan.size(), loaded.getAllAppointments().size());
+
+        hospital.deleteDoctor(second.getId());
+        assertTrue(hospital.getAllAppointments().stream().allMatch(a -> a.getDoctor() == doctor));
+        assertEquals(doctor.getAppointments().size(), hospital.getAllAppointments().size());
+    }
+
+    @Test
+    void testSortedViewsFollowLaterChanges() {
+        Doctor second = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        Patient other = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+        Appointment past = new Appointment(second, other, LocalDate.now().minusDays(1),
+                LocalTime.of(16, 0), LocalTime.of(16, 30), Appointment.Status.CLOSED);
+        second.addAppointment(past);
+        other.addAppointment(past);
+        Doctor leaving = hospital.createDoctor("Олег", "Бондар", MedicalSpecialty.SURGEON,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                hospital.createNearestAvailableAppointment(i % 3 == 0 ? other : patient,
+                        round == 0 && i % 4 == 0 ? leaving : i % 2 == 0 ? doctor : second);
+            }
+            if (round == 1) {
+                hospital.archiveAppointmentsBefore(LocalDate.now());
+                hospital.deleteDoctor(leaving.getId());
+            }
+            List<Comparator<Appointment>> orders = new ArrayList<>();
+            for (AppointmentComparator order : AppointmentComparator.values()) {
+                orders.add(order.getComparator());
+            }
+            // Not one of the indexed orders, so it is sorted on the spot.
+            orders.add(Comparator.comparing(Appointment::getEnd).reversed());
+            for (Comparator<Appointment> order : orders) {
+                List<Appointment> expected = new ArrayList<>(hospital.getAllAppointments());
+                expected.sort(order);
+                List<Appointment> sorted = new ArrayList<>(hospital.getAllAppointments(order));
+                assertEquals(expected.size(), sorted.size());
+                for (int i = 0; i < sorted.size(); i++) {
+                    assertEquals(0, order.compare(expected.get(i), sorted.get(i)));
+                }
+                assertEquals(new HashSet<>(expected), new HashSet<>(sorted));
+            }
+        }
+    }
+
+    @Test
+    void testStreamedReportFiltersAndPages() throws IOException {
+        Doctor dermatologist = hospital.createDoctor("Марія", "Коваленко", MedicalSpecialty.DERMATOLOGIST,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+        Patient other = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+        Appointment cardiology = hospital.createNearestAvailableAppointment(patient, doctor);
+        Appointment dermatology = hospital.createNearestAvailableAppointment(other, dermatologist);
+        dermatology.setStatus(Appointment.Status.CANCELLED);
+
+        StringBuilder full = new StringBuilder();
+        hospital.writeReport(full, ReportFilter.ALL);
+        assertEquals(hospital.generateFullReport(), full.toString());
+
+        StringBuilder cancelled = new StringBuilder();
+        hospital.writeReport(cancelled, ReportFilter.ALL.withSpecialty(MedicalSpecialty.DERMATOLOGIST)
+                .withStatus(Appointment.Status.CANCELLED));
+        assertTrue(cancelled.toString().contains(dermatology.toString()));
+        assertFalse(cancelled.toString().contains(cardiology.toString()));
+        assertFalse(cancelled.toString().contains(patient.toString()));
+        assertTrue(cancelled.toString().contains(other.toString()));
+
+        StringBuilder later = new StringBuilder();
+        hospital.writeReport(later, ReportFilter.ALL.withDates(cardiology.getDate().plusDays(1), null));
+        assertFalse(later.toString().contains("Немає призначень"));
+        assertFalse(later.toString().contains(doctor.toString()));
+        assertFalse(later.toString().contains(patient.toString()));
+
+        StringBuilder secondPage = new StringBuilder();
+        hospital.writeReport(secondPage, ReportFilter.ALL.withPage(1, 2));
+        String[] lines = secondPage.toString().split("\n");
+        assertEquals(6, lines.length);
+        assertEquals("<-- Список пацієнтів -->", lines[4]);
+        assertThrows(IllegalArgumentException.class, () -> ReportFilter.ALL.withPage(-1, 10));
+    }
+
+    @Test
+    void testRendererWritesTheSameBytesAsToString() throws IOException {
+        Doctor night = new Doctor(-42L, "Ґанна 😀", null, MedicalSpecialty.PSYCHIATRIST,
+                LocalTime.of(0, 0, 7), LocalTime.of(23, 59, 59, 120_000));
+        Patient ancient = new Patient(Long.MAX_VALUE, "O'Neil", "Ж", LocalDate.of(-40, 3, 1));
+        Appointment odd = new Appointment(night, ancient, LocalDate.of(10_000, 1, 2),
+                LocalTime.of(1, 2, 3, 4), LocalTime.of(1, 2, 3, 5_000_000), Appointment.Status.CLOSED);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReportRenderer renderer = new ReportRenderer(bytes, 32);
+        renderer.doctor(night).newLine().patient(ancient).newLine().appointment(odd);
+        renderer.flush();
+        assertEquals(night + "\n" + ancient + "\n" + odd, bytes.toString(StandardCharsets.UTF_8));
+
+        hospital.createNearestAvailableAppointment(patient, doctor);
+        Appointment past = new Appointment(doctor, patient, LocalDate.now().minusDays(3),
+                LocalTime.of(10, 0), LocalTime.of(10, 30), Appointment.Status.CLOSED);
+        doctor.addAppointment(past);
+        patient.addAppointment(past);
+        hospital.archiveAppointmentsBefore(LocalDate.now());
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        hospital.renderReport(report, ReportFilter.ALL);
+        assertEquals(hospital.generateFullReport(), report.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testJsonImportResolvesAppointmentsListedBeforeTheirOwners(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("reordered.json");
+        Files.writeString(file, """
+                {
+                  "appointments": [{"doctor": 3, "patient": 5, "date": "2030-01-02",
+                                    "status": "ACTIVE", "start": "10:00", "end": "10:30"}],
+                  "comment": {"ignored": [1, 2, 3]},
+                  "patients": [{"id": 5, "firstName": "Олена", "lastName": "Гринчук",
+                                "dateOfBirth": "1985-05-05"}],
+                  "doctors": [{"id": 3, "firstName": "Марія", "lastName": "Коваленко",
+                               "specialization": "DERMATOLOGIST", "workStart": "09:00", "workEnd": "17:00"}]
+                }
+                """);
+
+        Hospital loaded = new HospitalFileIO().loadFromFile(file.toString());
+
+        Doctor loadedDoctor = loaded.getDoctor(3).orElseThrow();
+        assertEquals(1, loadedDoctor.getAppointments().size());
+        assertEquals(loadedDoctor.getAppointments(), loaded.getPatient(5L).orElseThrow().getAppointments());
+    }
+
+    @Test
+    void testSortedExportSpillingToDiskMatchesInMemorySort() throws IOException {
+        for (int i = 0; i < 6; i++) {
+            Patient other = hospital.createPatient("Пацієнт", "№" + i, LocalDate.of(2000, 1, 1));
+            Doctor surgeon = hospital.createDoctor("Лікар", "№" + i, MedicalSpecialty.SURGEON,
+                    LocalTime.of(8 + i, 0), LocalTime.of(15, 0));
+            for (int j = 0; j < 50; j++) {
+                hospital.createNearestAvailableAppointment(j % 2 == 0 ? other : patient, j % 3 == 0 ? doctor : surgeon);
+            }
+        }
+
+        for (AppointmentComparator order : AppointmentComparator.values()) {
+            assertEquals(export(order, HospitalSerializer.DEFAULT_MAX_APPOINTMENTS_IN_MEMORY), export(order, 2));
+        }
+    }
+
+    @Test
+    void testSaveToFileSortsWithCachedWriter(@TempDir Path dir) throws IOException {
+        Patient second = hospital.createPatient("Олена", "Гринчук", LocalDate.of(1985, 5, 5));
+        hospital.createNearestAvailableAppointment(second, doctor);
+        hospital.createNearestAvailableAppointment(patient, doctor);
+        hospital.createNearestAvailableAppointment(second, doctor);
+        Path file = dir.resolve("sorted.json");
+
+        new HospitalFileIO().saveToFile(hospital, file.toString(), AppointmentComparator.BY_PATIENT_ID.getComparator());
+
+        List<Long> patientIds = new ArrayList<>();
+        new ObjectMapper().readTree(file.toFile()).get("appointments")
+                .forEach(node -> patientIds.add(node.get("patient").asLong()));
+        assertEquals(List.of(patient.getId(), second.getId(), second.getId()), patientIds);
+
+        new HospitalFileIO().saveToFile(hospital, file.toString(), null);
+        assertEquals(3, new ObjectMapper().readTree(file.toFile()).get("appointments").size());
+    }
+
+    private String export(AppointmentComparator order, int maxAppointmentsInMemory) throws IOException {
+        HospitalSerializer serializer = new HospitalSerializer(order.getComparator());
+        serializer.setMaxAppointmentsInMemory(maxAppointmentsInMemory);
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            serializer.serialize(hospital, generator, null);
+        }
+        return out.toString();
+    }
 }
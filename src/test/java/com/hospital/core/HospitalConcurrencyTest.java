@@ -0,0 +1,83 @@
+package com.hospital.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class HospitalConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int BOOKINGS_PER_THREAD = 250;
+
+    @Test
+    void testConcurrentBookingsNeverDoubleBook() throws Exception {
+        Hospital hospital = new Hospital();
+        List<Doctor> doctors = new ArrayList<>();
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            doctors.add(hospital.createDoctor("Лікар", "№" + i, MedicalSpecialty.values()[i % 7],
+                    LocalTime.of(9, 0), LocalTime.of(13, 0)));
+        }
+        for (int i = 0; i < 40; i++) {
+            patients.add(hospital.createPatient("Пацієнт", "№" + i, LocalDate.of(1990, 1, 1)));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Appointment>>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<Appointment> booked = new ArrayList<>();
+                for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                    booked.add(hospital.createNearestAvailableAppointment(
+                            patients.get(random.nextInt(patients.size())),
+                            doctors.get(random.nextInt(doctors.size()))));
+                }
+                return booked;
+            }));
+        }
+        start.countDown();
+
+        Set<Appointment> booked = new HashSet<>();
+        for (Future<List<Appointment>> result : results) {
+            booked.addAll(result.get());
+        }
+        pool.shutdown();
+
+        assertEquals(THREADS * BOOKINGS_PER_THREAD, booked.size());
+        assertEquals(booked.size(), doctors.stream().mapToInt(d -> d.getAppointments().size()).sum());
+        assertEquals(booked.size(), patients.stream().mapToInt(p -> p.getAppointments().size()).sum());
+        for (Doctor doctor : doctors) {
+            assertNoOverlaps(doctor.getAppointments());
+        }
+        for (Patient patient : patients) {
+            assertNoOverlaps(patient.getAppointments());
+            assertTrue(booked.containsAll(patient.getAppointments()));
+        }
+    }
+
+    private static void assertNoOverlaps(List<Appointment> appointments) {
+        for (int i = 1; i < appointments.size(); i++) {
+            Appointment previous = appointments.get(i - 1);
+            Appointment current = appointments.get(i);
+            assertFalse(previous.getDate().equals(current.getDate())
+                    && !current.getStart().isAfter(previous.getEnd()),
+                    "Overlapping appointments: " + previous + " and " + current);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.hospital.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+public class LongKeyMapTest {
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        Random random = new Random(3);
+        LongKeyMap<String> map = new LongKeyMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // A narrow key range keeps probe runs long and removals frequent.
+            long key = random.nextInt(5_000) - 1_000;
+            String value = "v" + i;
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 1 -> assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        List<String> values = new ArrayList<>(map.values());
+        values.sort(null);
+        List<String> expectedValues = new ArrayList<>(expected.values());
+        expectedValues.sort(null);
+        assertEquals(expectedValues, values);
+        List<String> inKeyOrder = new ArrayList<>();
+        map.valuesInKeyOrder().forEach(inKeyOrder::add);
+        assertEquals(new ArrayList<>(new TreeMap<>(expected).values()), inKeyOrder);
+    }
+
+    @Test
+    void testIterationSeesEveryValueKeptDuringTheWalkOnce() {
+        Random random = new Random(5);
+        LongKeyMap<Long> map = new LongKeyMap<>(2);
+        for (long key = 0; key < 20_000; key++) {
+            map.put(key, key);
+        }
+        Set<Long> kept = new HashSet<>();
+        for (long key = 0; key < 20_000; key += 3) {
+            kept.add(key);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        long added = 20_000;
+        for (Long value : map.values()) {
+            assertTrue(seen.add(value));
+            // Removals leave tombstones and additions refill them or grow the table, so
+            // nothing that stays in the map can move behind the walk.
+            long victim = random.nextInt(20_000);
+            if (!kept.contains(victim)) {
+                map.remove(victim);
+            }
+            map.put(added, added++);
+        }
+        assertTrue(seen.containsAll(kept));
+    }
+}
@@ -0,0 +1,73 @@
+package com.hospital.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+public class ScheduleTest {
+    private static final Comparator<Appointment> CHRONOLOGICAL = Comparator
+            .comparing(Appointment::getDate)
+            .thenComparing(Appointment::getStart);
+
+    @Test
+    void testRandomChangesMatchASortedSetAndLeaveHandedOutListsAlone() {
+        Random random = new Random(11);
+        Schedule schedule = new Schedule();
+        TreeSet<Appointment> expected = new TreeSet<>(CHRONOLOGICAL);
+        List<List<Appointment>> handedOut = new ArrayList<>();
+        List<List<Appointment>> contents = new ArrayList<>();
+        LocalDate origin = LocalDate.now().minusDays(30);
+
+        for (int i = 0; i < 5_000; i++) {
+            LocalDate date = origin.plusDays(random.nextInt(90));
+            LocalTime start = LocalTime.of(8 + random.nextInt(10), 0);
+            Appointment candidate = new Appointment(null, null, date, start, start.plusMinutes(30),
+                    Appointment.Status.ACTIVE);
+            if (random.nextInt(3) == 0 && !expected.isEmpty()) {
+                Appointment booked = expected.ceiling(candidate);
+                if (booked != null) {
+                    assertTrue(schedule.remove(booked));
+                    expected.remove(booked);
+                }
+            } else if (schedule.isFree(date, candidate.getStart(), candidate.getEnd())) {
+                assertFalse(expected.contains(candidate));
+                schedule.add(candidate);
+                expected.add(candidate);
+            } else {
+                assertTrue(expected.contains(candidate));
+            }
+
+            if (i % 50 == 0) {
+                LocalDate from = origin.plusDays(random.nextInt(90));
+                LocalDate to = from.plusDays(random.nextInt(30));
+                Appointment low = new Appointment(null, null, from, LocalTime.MIN, LocalTime.MIN, null);
+                Appointment high = new Appointment(null, null, to, LocalTime.MIN, LocalTime.MIN, null);
+                List<Appointment> range = new ArrayList<>(expected.subSet(low, high));
+                assertEquals(range.size(), schedule.count(from, to));
+                List<Appointment> between = schedule.between(from, to);
+                assertEquals(range, between);
+                List<Appointment> all = schedule.asList();
+                assertEquals(new ArrayList<>(expected), all);
+                assertEquals(expected.size(), schedule.size());
+                handedOut.add(between);
+                contents.add(range);
+                handedOut.add(all);
+                contents.add(new ArrayList<>(expected));
+            }
+        }
+
+        for (int i = 0; i < handedOut.size(); i++) {
+            assertEquals(contents.get(i), handedOut.get(i));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hospital.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SlotFinderTest {
+
+    @Test
+    void testBitmapSearchMatchesProbingReference() {
+        Random random = new Random(42);
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        List<Doctor> doctors = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            LocalTime workStart = LocalTime.of(7 + random.nextInt(3), random.nextInt(4) * 15);
+            LocalTime workEnd = workStart.plusHours(2 + random.nextInt(6)).plusMinutes(random.nextInt(60));
+            doctors.add(new Doctor(id, "Лікар", "№" + id, MedicalSpecialty.SURGEON, workStart, workEnd));
+        }
+
+        List<Patient> patients = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            Patient patient = new Patient(id, "Пацієнт", "№" + id, LocalDate.of(1990, 1, 1));
+            for (int i = 0; i < 20; i++) {
+                LocalTime start = LocalTime.of(6 + random.nextInt(12), random.nextInt(60));
+                Appointment elsewhere = new Appointment(null, patient, tomorrow.plusDays(random.nextInt(5)),
+                        start, start.plusMinutes(5 + random.nextInt(50)), Appointment.Status.ACTIVE);
+                if (patient.canAcceptAppointment(elsewhere)) {
+                    patient.addAppointment(elsewhere);
+                }
+            }
+            patients.add(patient);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            Patient patient = patients.get(random.nextInt(patients.size()));
+
+            Appointment expected = SlotFinder.probeNearest(doctor, patient, tomorrow);
+            long slot = SlotFinder.findNearest(doctor, patient, tomorrow, 30, 30);
+
+            assertEquals(expected.getDate(), SlotFinder.dateOf(slot));
+            assertEquals(expected.getStart(), SlotFinder.timeOf(slot));
+
+            doctor.addAppointment(expected);
+            patient.addAppointment(expected);
+        }
+    }
+
+    @Test
+    void testMixedDurationsMatchProbingReference() {
+        Random random = new Random(11);
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        int[] slotSizes = { 5, 10, 15, 20, 45 };
+
+        List<Doctor> doctors = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            LocalTime workStart = LocalTime.of(7 + random.nextInt(3), random.nextInt(12) * 5);
+            Doctor doctor = new Doctor(id, "Лікар", "№" + id, MedicalSpecialty.DERMATOLOGIST,
+                    workStart, workStart.plusHours(3 + random.nextInt(5)));
+            doctor.setSlotPolicy(new SlotPolicy(slotSizes[random.nextInt(slotSizes.length)], 5 + random.nextInt(40)));
+            doctors.add(doctor);
+        }
+        List<Patient> patients = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            patients.add(new Patient(id, "Пацієнт", "№" + id, LocalDate.of(1990, 1, 1)));
+        }
+
+        for (int i = 0; i < 400; i++) {
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            Patient patient = patients.get(random.nextInt(patients.size()));
+            SlotPolicy policy = doctor.getSlotPolicy();
+
+            Appointment expected = SlotFinder.probeNearest(doctor, patient, tomorrow,
+                    policy.getSlotMinutes(), policy.getVisitMinutes());
+            long slot = SlotFinder.findNearest(doctor, patient, tomorrow,
+                    policy.getSlotMinutes(), policy.getVisitMinutes());
+
+            assertEquals(expected.getDate(), SlotFinder.dateOf(slot));
+            assertEquals(expected.getStart(), SlotFinder.timeOf(slot));
+
+            doctor.addAppointment(expected);
+            patient.addAppointment(expected);
+        }
+    }
+
+    @Test
+    void testCalendarSearchMatchesProbingReference() {
+        Random random = new Random(7);
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        List<Doctor> doctors = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+            while (weekdays.isEmpty()) {
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    if (random.nextInt(3) > 0) {
+                        weekdays.add(day);
+                    }
+                }
+            }
+            List<LocalDate> holidays = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                holidays.add(tomorrow.plusDays(random.nextInt(30)));
+            }
+            LocalDate vacation = tomorrow.plusDays(random.nextInt(20));
+            Doctor doctor = new Doctor(id, "Лікар", "№" + id, MedicalSpecialty.SURGEON,
+                    LocalTime.of(9, 0), LocalTime.of(10, 30));
+            doctor.setWorkingCalendar(new WorkingCalendar(weekdays).withHolidays(holidays)
+                    .withVacation(vacation, vacation.plusDays(random.nextInt(10))));
+            doctors.add(doctor);
+        }
+        Patient patient = new Patient(1L, "Пацієнт", "№1", LocalDate.of(1990, 1, 1));
+
+        for (int i = 0; i < 100; i++) {
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            Appointment expected = SlotFinder.probeNearest(doctor, patient, tomorrow);
+            long slot = SlotFinder.findNearest(doctor, patient, tomorrow, 30, 30);
+
+            assertEquals(expected.getDate(), SlotFinder.dateOf(slot));
+            assertEquals(expected.getStart(), SlotFinder.timeOf(slot));
+            assertTrue(doctor.getWorkingCalendar().isWorkingDay(expected.getDate()));
+
+            doctor.addAppointment(expected);
+            patient.addAppointment(expected);
+        }
+    }
+
+    @Test
+    void testNextWorkingDaySkipsWeekdaysHolidaysAndVacations() {
+        LocalDate monday = LocalDate.of(2026, 1, 5);
+        WorkingCalendar calendar = new WorkingCalendar(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY))
+                .withHolidays(List.of(monday.plusDays(2)))
+                .withVacation(monday.plusDays(7), monday.plusDays(10))
+                .withVacation(monday.plusDays(11), monday.plusDays(14));
+
+        assertEquals(monday.toEpochDay(), calendar.nextWorkingDay(monday.toEpochDay()));
+        assertEquals(monday.plusDays(16).toEpochDay(), calendar.nextWorkingDay(monday.plusDays(1).toEpochDay()));
+        assertEquals(1, calendar.getVacations().size());
+        assertEquals(WorkingCalendar.NO_DAY,
+                new WorkingCalendar(EnumSet.noneOf(DayOfWeek.class)).nextWorkingDay(monday.toEpochDay()));
+    }
+
+    @Test
+    void testSearchGivesUpWhenTheShiftIsShorterThanAVisit() {
+        Doctor doctor = new Doctor(1L, "Лікар", "№1", MedicalSpecialty.SURGEON, LocalTime.of(9, 0), LocalTime.of(9, 20));
+        assertEquals(SlotFinder.NO_SLOT, SlotFinder.findNearest(doctor, null, LocalDate.now(), 30, 30));
+    }
+
+    @Test
+    void testBoundedSearchStopsAtTheLimit() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        Doctor doctor = new Doctor(1L, "Лікар", "№1", MedicalSpecialty.SURGEON, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        Patient patient = new Patient(1L, "Пацієнт", "№1", LocalDate.of(1990, 1, 1));
+        for (int day = 0; day < 3; day++) {
+            doctor.addAppointment(new Appointment(doctor, patient, tomorrow.plusDays(day),
+                    LocalTime.of(9, 0), LocalTime.of(9, 30), Appointment.Status.ACTIVE));
+        }
+
+        long expected = SlotFinder.findNearest(doctor, null, tomorrow, 30, 30);
+        assertEquals(tomorrow.plusDays(3), SlotFinder.dateOf(expected));
+        assertEquals(expected, SlotFinder.findNearest(doctor, null, tomorrow, 30, 30, () -> expected));
+        assertEquals(SlotFinder.NO_SLOT, SlotFinder.findNearest(doctor, null, tomorrow, 30, 30, () -> expected - 1));
+    }
+}